@@ -0,0 +1,109 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Helpers shared by benchmarks, they build synthetic TestContexts and bind them to the benchmark thread.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public final class BenchmarkSupport {
+	
+	//Invocations after which current TestCase is released, so that accumulated timings do not skew results.
+	private static final int RELEASE_MASK = 1023;
+	
+	private BenchmarkSupport() {
+	}
+	
+	/**
+	 * Binds given context to the calling thread, the same way a worker of {@link TestSuiteRunner} does.
+	 * @param context
+	 * @return the context
+	 */
+	public static <T extends TestContext> T bind(T context) {
+		TestContext.setInstance(context);
+		return context;
+	}
+	
+	public static void unbind() {
+		TestContext.removeInstance();
+	}
+	
+	/**
+	 * Releases steps of current TestCase once in a while, call it from a benchmark that keeps
+	 * adding to a TestCase.
+	 * 
+	 * @param invocation sequence number of the invocation
+	 */
+	public static void releaseEvery(long invocation) {
+		if ((invocation & RELEASE_MASK) == 0) {
+			TestCase testCase = TestContext.getInstance().getCurrentTestCase();
+			if (testCase != null) {
+				testCase.release();
+			}
+		}
+	}
+	
+	/**
+	 * Creates properties with attachment and report directories in a new temporary directory.
+	 * @return
+	 * @throws IOException
+	 */
+	public static TestProperties temporaryProperties() throws IOException {
+		Path root = Files.createTempDirectory("naica-benchmark");
+		String attachments = root.resolve("attachments").toString();
+		String reports = root.resolve("reports").toString();
+		return new TestProperties() {
+
+			@Override
+			public String getAttachmentDirectory() {
+				return attachments;
+			}
+
+			@Override
+			public String getReportDirectory() {
+				return reports;
+			}
+		};
+	}
+	
+	/**
+	 * Fills given context with finished TestCases, each having given number of steps with an action,
+	 * a result and a timing.
+	 * 
+	 * @param context
+	 * @param testCases
+	 * @param stepsPerTestCase
+	 * @return the context
+	 */
+	public static <T extends TestContext> T populate(T context, int testCases, int stepsPerTestCase) {
+		for (int i = 0; i < testCases; i++) {
+			context.newTestCase("case-" + i);
+			for (int j = 0; j < stepsPerTestCase; j++) {
+				context.addStep("Click link " + j + ".");
+				context.addResult("Page " + j + " is shown.");
+				context.addTiming(Timing.Category.ACTION, "click", 1_000_000);
+			}
+		}
+		context.stop();
+		return context;
+	}
+}
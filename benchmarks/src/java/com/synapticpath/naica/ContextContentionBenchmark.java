@@ -0,0 +1,74 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures throughput of TestContext lookups on the hot path of Ops when several workers run
+ * in parallel. Lookups through the lock-free {@link TestContext#getInstance()} are compared with lookups
+ * through a global lock, which is how the context used to be obtained.
+ * 
+ * Vary the number of workers with the -t option, e.g. -t 4.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ContextContentionBenchmark {
+	
+	private static final String ACTION = "Click navigation link.";
+	
+	private static final String RESULT = "Page is shown.";
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkSupport.bind(new TestContext()).newTestCase("case-" + Thread.currentThread().getId());
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkSupport.unbind();
+	}
+	
+	@Benchmark
+	public void lockFree() {
+		TestContext.getInstance().addAction(ACTION);
+		TestContext.getInstance().addResult(RESULT);
+	}
+	
+	@Benchmark
+	public void locked() {
+		lockedInstance().addAction(ACTION);
+		lockedInstance().addResult(RESULT);
+	}
+	
+	private static synchronized TestContext lockedInstance() {
+		return TestContext.getInstance();
+	}
+}
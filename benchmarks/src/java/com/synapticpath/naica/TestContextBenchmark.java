@@ -0,0 +1,75 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures bookkeeping of {@link TestContext} when it already holds a large number of steps.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TestContextBenchmark {
+	
+	@Param({"10", "100"})
+	private int testCases;
+	
+	@Param({"100", "1000"})
+	private int stepsPerTestCase;
+	
+	private TestContext context;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkSupport.bind(BenchmarkSupport.populate(new TestContext(), testCases, stepsPerTestCase));
+		context.newTestCase("case-0");
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkSupport.unbind();
+	}
+	
+	@Benchmark
+	public void addAction() {
+		TestContext.getInstance().addAction("Click link.");
+	}
+	
+	@Benchmark
+	public void addResult() {
+		TestContext.getInstance().addResult("Page is shown.");
+	}
+	
+	@Benchmark
+	public TestOutcome getOutcome() {
+		return TestContext.getInstance().getOutcome();
+	}
+}
@@ -0,0 +1,67 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.attachments;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.synapticpath.naica.BenchmarkSupport;
+import com.synapticpath.naica.TestContext;
+
+/**
+ * Measures construction of {@link SnapshotAttachment} file names in TestCases with many steps,
+ * the attachment is named after the index of current step.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SnapshotAttachmentBenchmark {
+	
+	@Param({"10", "1000", "10000"})
+	private int steps;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		TestContext context = BenchmarkSupport.bind(new TestContext());
+		context.setProperties(BenchmarkSupport.temporaryProperties());
+		BenchmarkSupport.populate(context, 1, steps);
+		context.newTestCase("case-0");
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkSupport.unbind();
+	}
+	
+	@Benchmark
+	public SnapshotAttachment construct() {
+		return new SnapshotAttachment("Snapshot", "png");
+	}
+}
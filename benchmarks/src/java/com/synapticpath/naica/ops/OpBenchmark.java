@@ -0,0 +1,105 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.ops;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.synapticpath.naica.BenchmarkSupport;
+import com.synapticpath.naica.actions.Action;
+import com.synapticpath.naica.conditions.Condition;
+import com.synapticpath.naica.selenium.SeleniumAction;
+import com.synapticpath.naica.selenium.SeleniumOp;
+import com.synapticpath.naica.selenium.SeleniumTestContext;
+import com.synapticpath.naica.selenium.memory.InMemoryWebDriver;
+
+/**
+ * Measures overhead of executing Ops whose actions and conditions do nothing, that is the cost of
+ * bookkeeping, timing and reporting the framework adds to every Op.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OpBenchmark {
+	
+	@Param({"true", "false"})
+	private boolean conditionResult;
+	
+	private Op baseOp;
+	
+	private Op seleniumOp;
+	
+	private Op conditionOp;
+	
+	private long invocation;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		SeleniumTestContext context = BenchmarkSupport.bind(new SeleniumTestContext());
+		context.setDriver(new InMemoryWebDriver());
+		context.newTestCase("op-benchmark");
+		
+		baseOp = new BaseOp(new Action[0], new Condition[0]) {}
+			.action(() -> true)
+			.condition(() -> conditionResult)
+			.description("Do nothing.")
+			.onSuccess("Nothing was done.")
+			.onFailure("Nothing failed.");
+		
+		seleniumOp = SeleniumOp.on(SeleniumAction.noAction(), () -> conditionResult)
+			.description("Do nothing in the browser.")
+			.onSuccess("Nothing was done.");
+		
+		conditionOp = ConditionOp.on(() -> conditionResult, () -> true).failOp(() -> false);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		SeleniumTestContext.getInstance().getDriver().quit();
+		BenchmarkSupport.unbind();
+	}
+	
+	@Benchmark
+	public boolean baseOp() {
+		BenchmarkSupport.releaseEvery(++invocation);
+		return baseOp.execute();
+	}
+	
+	@Benchmark
+	public boolean seleniumOp() {
+		BenchmarkSupport.releaseEvery(++invocation);
+		return seleniumOp.execute();
+	}
+	
+	@Benchmark
+	public boolean conditionOp() {
+		BenchmarkSupport.releaseEvery(++invocation);
+		return conditionOp.execute();
+	}
+}
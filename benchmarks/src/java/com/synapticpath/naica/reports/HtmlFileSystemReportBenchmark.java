@@ -0,0 +1,72 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.reports;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.synapticpath.naica.BenchmarkSupport;
+import com.synapticpath.naica.TestContext;
+
+/**
+ * Measures generation of a report for a synthetic suite of 10 000 steps split among a number of TestCases.
+ * Reports are written to a temporary directory.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HtmlFileSystemReportBenchmark {
+	
+	private static final int STEPS = 10_000;
+	
+	@Param({"10", "100", "1000"})
+	private int testCases;
+	
+	private TestContext context;
+	
+	private HtmlFileSystemReport report = new HtmlFileSystemReport();
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		context = BenchmarkSupport.bind(new TestContext());
+		context.setProperties(BenchmarkSupport.temporaryProperties());
+		BenchmarkSupport.populate(context, testCases, STEPS / testCases);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkSupport.unbind();
+	}
+	
+	@Benchmark
+	public void generate() {
+		report.generate(context);
+	}
+}
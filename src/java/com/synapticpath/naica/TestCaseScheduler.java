@@ -0,0 +1,351 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import static java.lang.String.format;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hands out TestCaseRunners in an order that respects their dependencies, see {@link TestCaseRunner#dependsOn(String...)}.
+ * Runners form a directed acyclic graph, a runner becomes ready as soon as all runners it depends on have succeeded,
+ * ready runners are handed out in the order in which they were given. Any number of workers can take runners
+ * concurrently, so independent runners run in parallel.
+ * 
+ * When estimated durations are given, ready runners are handed out longest first instead. A runner is as long
+ * as its own estimate plus the longest chain of runners that depend on it, so that chains start early. For independent
+ * runners this is the longest processing time first rule, which keeps workers evenly loaded until the end of the suite.
+ * 
+ * When a runner does not succeed, all runners that depend on it, directly or transitively, are not handed
+ * out and are reported as skipped instead.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class TestCaseScheduler {
+	
+	private enum State {PENDING, READY, RUNNING, DONE, SKIPPED}
+	
+	private final TestCaseRunner [] runners;
+	
+	//Indexes of runners that depend on runner at given index
+	private final List<List<Integer>> dependents = new ArrayList<List<Integer>>();
+	
+	//Indexes of runners given runner depends on
+	private final List<List<Integer>> dependencies = new ArrayList<List<Integer>>();
+	
+	private final List<Integer> topologicalOrder = new ArrayList<Integer>();
+	
+	private final int [] pendingDependencies;
+	
+	private final State [] states;
+	
+	private final PriorityQueue<Integer> ready;
+	
+	//Estimated duration of runner at given index
+	private final long [] estimates;
+	
+	//Estimated duration of runner at given index and the longest chain of its dependents
+	private final long [] ranks;
+	
+	private final Map<TestCaseRunner, Integer> indexes = new HashMap<TestCaseRunner, Integer>();
+	
+	private int running;
+	
+	/**
+	 * Creates scheduler that hands out ready runners in given order.
+	 * 
+	 * @param runners
+	 * @throws IllegalArgumentException when a runner depends on an unknown TestCase or dependencies form a cycle
+	 */
+	public TestCaseScheduler(TestCaseRunner ... runners) {
+		this(null, runners);
+	}
+	
+	/**
+	 * Creates scheduler that hands out ready runners longest first.
+	 * 
+	 * @param estimate of runner duration, null to keep given order
+	 * @param runners
+	 * @throws IllegalArgumentException when a runner depends on an unknown TestCase or dependencies form a cycle
+	 */
+	public TestCaseScheduler(ToLongFunction<TestCaseRunner> estimate, TestCaseRunner ... runners) {
+		this(estimate, Collections.<String>emptySet(), runners);
+	}
+	
+	/**
+	 * Creates scheduler for runners some of whose dependencies were already satisfied elsewhere, e.g. by
+	 * a previous run.
+	 * 
+	 * @param estimate of runner duration, null to keep given order
+	 * @param satisfied ids of TestCases that succeeded and are not among runners
+	 * @param runners
+	 * @throws IllegalArgumentException when a runner depends on an unknown TestCase or dependencies form a cycle
+	 */
+	public TestCaseScheduler(ToLongFunction<TestCaseRunner> estimate, Set<String> satisfied, TestCaseRunner ... runners) {
+		this.runners = runners;
+		this.estimates = new long[runners.length];
+		this.ranks = new long[runners.length];
+		this.pendingDependencies = new int[runners.length];
+		this.states = new State[runners.length];
+		
+		Map<String, List<Integer>> byId = new HashMap<String, List<Integer>>();
+		for (int i = 0; i < runners.length; i++) {
+			byId.computeIfAbsent(runners[i].getId(), id -> new ArrayList<Integer>()).add(i);
+			indexes.put(runners[i], i);
+			dependents.add(new ArrayList<Integer>());
+			dependencies.add(new ArrayList<Integer>());
+		}
+		
+		for (int i = 0; i < runners.length; i++) {
+			for (String id : runners[i].getDependencies()) {
+				List<Integer> required = byId.get(id);
+				if (required == null && satisfied.contains(id)) {
+					continue;
+				}
+				if (required == null) {
+					throw new IllegalArgumentException(format("TestCase %s depends on unknown TestCase %s.", runners[i].getId(), id));
+				}
+				for (int j : required) {
+					dependents.get(j).add(i);
+					dependencies.get(i).add(j);
+					pendingDependencies[i]++;
+				}
+			}
+		}
+		
+		sortTopologically();
+		
+		if (estimate != null) {
+			for (int i = 0; i < runners.length; i++) {
+				estimates[i] = estimate.applyAsLong(runners[i]);
+			}
+			for (int k = topologicalOrder.size() - 1; k >= 0; k--) {
+				int i = topologicalOrder.get(k);
+				long longestDependent = 0;
+				for (int dependent : dependents.get(i)) {
+					longestDependent = Math.max(longestDependent, ranks[dependent]);
+				}
+				ranks[i] = estimates[i] + longestDependent;
+			}
+		}
+		ready = new PriorityQueue<Integer>(Math.max(1, runners.length), this::compare);
+		
+		for (int i = 0; i < runners.length; i++) {
+			states[i] = pendingDependencies[i] == 0 ? State.READY : State.PENDING;
+			if (states[i] == State.READY) {
+				ready.add(i);
+			}
+		}
+	}
+	
+	/**
+	 * Kahn's algorithm, fails when some runners can never become ready.
+	 */
+	private void sortTopologically() {
+		int [] pending = pendingDependencies.clone();
+		Deque<Integer> free = new ArrayDeque<Integer>();
+		for (int i = 0; i < runners.length; i++) {
+			if (pending[i] == 0) {
+				free.add(i);
+			}
+		}
+		while (!free.isEmpty()) {
+			int i = free.poll();
+			topologicalOrder.add(i);
+			for (int dependent : dependents.get(i)) {
+				if (--pending[dependent] == 0) {
+					free.add(dependent);
+				}
+			}
+		}
+		
+		if (topologicalOrder.size() < runners.length) {
+			List<String> cycle = new ArrayList<String>();
+			for (int i = 0; i < runners.length; i++) {
+				if (pending[i] > 0) {
+					cycle.add(runners[i].getId());
+				}
+			}
+			throw new IllegalArgumentException(format("Dependencies of TestCases %s form a cycle.", cycle));
+		}
+	}
+	
+	/**
+	 * Longer runners go first, otherwise the given order applies.
+	 */
+	private int compare(Integer a, Integer b) {
+		int byRank = Long.compare(ranks[b], ranks[a]);
+		return byRank != 0 ? byRank : Integer.compare(a, b);
+	}
+	
+	/**
+	 * Simulates running all runners with given number of workers using estimated durations.
+	 * 
+	 * @param workers
+	 * @return estimated time until all runners are finished, in units of the estimate
+	 */
+	public long estimateMakespan(int workers) {
+		int [] pending = new int[runners.length];
+		PriorityQueue<Integer> simulatedReady = new PriorityQueue<Integer>(Math.max(1, runners.length), this::compare);
+		for (int i = 0; i < runners.length; i++) {
+			pending[i] = dependencies.get(i).size();
+			if (pending[i] == 0) {
+				simulatedReady.add(i);
+			}
+		}
+		
+		//Finish time and index of running runners, earliest first
+		PriorityQueue<long []> runningRunners = new PriorityQueue<long []>((a, b) -> Long.compare(a[0], b[0]));
+		long time = 0;
+		int idle = workers;
+		while (true) {
+			while (idle > 0 && !simulatedReady.isEmpty()) {
+				int i = simulatedReady.poll();
+				runningRunners.add(new long [] {time + estimates[i], i});
+				idle--;
+			}
+			long [] finished = runningRunners.poll();
+			if (finished == null) {
+				return time;
+			}
+			time = finished[0];
+			idle++;
+			for (int dependent : dependents.get((int) finished[1])) {
+				if (--pending[dependent] == 0) {
+					simulatedReady.add(dependent);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns true when at least one runner depends on another one.
+	 * @return
+	 */
+	public boolean hasDependencies() {
+		for (List<Integer> required : dependencies) {
+			if (!required.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Takes next ready runner, waits while other runners are running and none is ready.
+	 * 
+	 * @return next runner or null when there is nothing left to run
+	 * @throws InterruptedException
+	 */
+	public synchronized TestCaseRunner next() throws InterruptedException {
+		while (ready.isEmpty() && running > 0) {
+			wait();
+		}
+		Integer index = ready.poll();
+		if (index == null) {
+			return null;
+		}
+		states[index] = State.RUNNING;
+		running++;
+		return runners[index];
+	}
+	
+	/**
+	 * Reports a runner handed out by {@link #next()} as finished. Runners depending on it become ready
+	 * when it succeeded, or are skipped when it did not.
+	 * 
+	 * @param runner
+	 * @param succeeded
+	 * @return runners that are skipped, mapped to the id of the TestCase that did not succeed
+	 */
+	public synchronized Map<TestCaseRunner, String> completed(TestCaseRunner runner, boolean succeeded) {
+		int index = indexes.get(runner);
+		states[index] = State.DONE;
+		running--;
+		
+		Map<TestCaseRunner, String> skipped = new LinkedHashMap<TestCaseRunner, String>();
+		if (succeeded) {
+			for (int dependent : dependents.get(index)) {
+				if (states[dependent] == State.PENDING && --pendingDependencies[dependent] == 0) {
+					states[dependent] = State.READY;
+					ready.add(dependent);
+				}
+			}
+		} else {
+			skipDependents(index, runner.getId(), skipped);
+		}
+		
+		notifyAll();
+		return skipped;
+	}
+	
+	private void skipDependents(int index, String cause, Map<TestCaseRunner, String> skipped) {
+		for (int dependent : dependents.get(index)) {
+			if (states[dependent] == State.PENDING) {
+				states[dependent] = State.SKIPPED;
+				skipped.put(runners[dependent], cause);
+				skipDependents(dependent, cause, skipped);
+			}
+		}
+	}
+	
+	/**
+	 * Finds the chain of dependent runners with the largest total weight, it bounds the time needed to run
+	 * all runners no matter how many workers there are.
+	 * 
+	 * @param weight of a runner, e.g. its duration
+	 * @return runners on the critical path, first one has no dependencies
+	 */
+	public List<TestCaseRunner> getCriticalPath(ToLongFunction<TestCaseRunner> weight) {
+		
+		long [] length = new long[runners.length];
+		int [] predecessor = new int[runners.length];
+		int last = -1;
+		
+		for (int i : topologicalOrder) {
+			predecessor[i] = -1;
+			long longest = 0;
+			for (int j : dependencies.get(i)) {
+				if (predecessor[i] == -1 || length[j] > longest) {
+					longest = length[j];
+					predecessor[i] = j;
+				}
+			}
+			length[i] = longest + weight.applyAsLong(runners[i]);
+			if (last == -1 || length[i] >= length[last]) {
+				last = i;
+			}
+		}
+		
+		List<TestCaseRunner> path = new ArrayList<TestCaseRunner>();
+		for (int i = last; i != -1; i = predecessor[i]) {
+			path.add(runners[i]);
+		}
+		Collections.reverse(path);
+		return path;
+	}
+}
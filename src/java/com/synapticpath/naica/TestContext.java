@@ -1,259 +1,578 @@
-/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
-
- This program is free software: you can redistribute it and/or modify
-    it under the terms of the GNU General Public License as published by
-    the Free Software Foundation, either version 3 of the License, or
-    (at your option) any later version.
-
-    This program is distributed in the hope that it will be useful,
-    but WITHOUT ANY WARRANTY; without even the implied warranty of
-    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
-    GNU General Public License for more details.
-
-    You should have received a copy of the GNU General Public License
-    along with this program.  If not, see <http://www.gnu.org/licenses/>.
-*/
-package com.synapticpath.naica;
-
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-
-import com.synapticpath.naica.attachments.Attachment;
-
-/**
- * The TestContext class holds the entire structure of a test together.
- * 
- * TestContext encapsulates a 
- * 
- *  TODO: detailed documentaiton 
- * 
- * @author developer@synapticpath.com
- *
- */
-public class TestContext {
-
-	//Here is where all testCases that were/are running are stored.
-    private Map<String, TestCase> testCases = new HashMap<String, TestCase>();
-    
-    //TestProperties store configuration information that is needed.
-    private TestProperties properties;
-
-    //For convenience reasons, a TestCase that is currently executed is stored here.
-    private TestCase currentTestCase;
-    
-    private static ThreadLocal<TestContext> instance = new ThreadLocal<TestContext>();
-
-    public void stop() {
-    	if (currentTestCase != null) {
-    		currentTestCase.stop();
-    	}
-    }
-    
-    /**
-     * Override this method to perform cleanup and other duties after tests are complete.
-     */
-    public void finalize() {
-    	stop();
-    }
-
-    /**
-     * Obtain the properties that were set.  In them find important information needed for the
-     * test to be able to run through.
-     * 
-     * The 2 most important 
-     * 
-     * @return
-     */
-    public TestProperties getProperties() {
-        return properties;
-    }
-
-    /**
-     * Set the TestProperties, you typically want to do this before the test starts. 
-     * @param properties
-     */
-    public void setProperties(TestProperties properties) {
-        this.properties = properties;
-    }
-
-    /**
-     * Get all accumulated TestCases in this {@link TestContext}.
-     * @return
-     */
-    public Collection<TestCase> getTestCases() {
-        return testCases.values();
-    }
-
-    /**
-     * Stops current {@link TestCase} and starts a new one with given id.
-     * @param id
-     * @return
-     */
-    public TestCase newTestCase(String id) {
-        
-        stop();
-         
-        currentTestCase = testCases.get(id);
-        if (currentTestCase == null) {
-
-        	currentTestCase = new TestCase(id);
-            testCases.put(id, currentTestCase);
-        }
-
-        return currentTestCase;
-    }
-
-    /**
-     * Current TestCase is null when test is not started yet (there are no TestCases) or the
-     * test is already finished - in which case you want to use {@link TestContext#getLastTestCase()}.
-     * @return
-     */
-    public TestCase getCurrentTestCase() {
-        return currentTestCase;
-    }
-
-    /**
-     * A test will have a number of TestCases, call this to get the last one.
-     * 
-     * @return
-     */
-    public TestCase getLastTestCase() {
-        TestCase last = null;
-        for (TestCase testCase :  testCases.values()) {
-            last = testCase;
-        }
-
-        return last;
-    }
-
-    /**
-     * Add a new test step to current TestCase while adding a number of action descriptions.
-     * @param actions
-     */
-    public void addStep(String ... actions) {
-
-        if (currentTestCase != null) {
-            getCurrentTestCase().addStep();
-            if (actions != null) {
-                for (String action : actions) {
-                    addAction(action);
-                }
-            }
-        }
-    }
-
-    /**
-     * Adds an action description to current TestCase.  When all actions are printed
-     * to a report, they should allow a person to recreate the test by following the action
-     * descriptions.
-     * 
-     * @param description
-     */
-    public void addAction(String description) {
-        if (currentTestCase != null) {
-            getCurrentTestCase().addAction(description);
-        }
-    }
-
-    /**
-     * Adds a test result description.  Use this when you want to report an outcome of a test. 
-     * @param description
-     */
-    public void addResult(String description) {
-        if (currentTestCase != null) {
-            getCurrentTestCase().addResult(description);
-        }
-    }
-
-    /**
-     * Fails current TestCase at current step.
-     */
-    public void fail() {
-        if (currentTestCase != null) {
-            getCurrentTestCase().fail();
-        }
-    }
-
-    /**
-     * Call this to find out if the test has failed or not.
-     * @return
-     */
-    public boolean isFailed() {
-    	return getOutcome().equals(TestOutcome.FAILURE);       
-    }
-
-    /**
-     * Add an attachment to current testCase.
-     * @param attachment
-     */
-    public void addAttachment(Attachment attachment) {
-        if (currentTestCase != null) {
-            getCurrentTestCase().addAttachment(attachment);
-        }
-    }
-    
-
-    /**
-     * Get the outcome of the test by analyzing the outcome of each test case.
-     * When one testCase fails, the whole test fails, when one testCase ends with
-     * {@link TestOutcome#CONDITIONAL_SUCCESS}, the entire test will have {@link TestOutcome#CONDITIONAL_SUCCESS}.
-     * 
-     * {@link TestOutcome#SUCCESS} will be returned only if every single TestCase ends
-     * with the same outcome.
-     * 
-     * @return
-     */
-    public TestOutcome getOutcome() {
-
-        boolean conditional = false;
-        for (TestCase testCase : getTestCases()) {
-            switch (testCase.getOutcome()) {
-                //When one of the steps fails, the whole test case fails
-                case FAILURE:
-                    return TestOutcome.FAILURE;
-                case CONDITIONAL_SUCCESS:
-                    conditional = true;
-                    break;
-                case SUCCESS:
-                	//Success is good, nothing to do here.
-                	break;
-            }
-        }
-        //Failed test never gets here.
-        return conditional ? TestOutcome.CONDITIONAL_SUCCESS : TestOutcome.SUCCESS;
-    }
-    
-    /**
-     * Since we can only have one instance of TestContext, subclassing a testContext wouldn't
-     * be possible. This method will merge this instance of TestContext with another one, thus
-     * calling {@link TestContext#getInstance()} will always return relevant instance.
-     * 
-     * @param testContext
-     */
-    public synchronized void mergeInstances(TestContext testContext) {
-    	
-    	TestContext currentInstance = instance.get();
-    	if (currentInstance != null) {
-    		currentInstance.stop();
-    		testContext.testCases.putAll(currentInstance.testCases); 
-    	}
-    	instance.set(testContext);
-    }
-
-    /**
-     * TestContext is a singleton, get the single instance of it from ThreadLocal or 
-     * create new one if it doesn't exist yet.
-     * 
-     * @return
-     */
-    public static synchronized TestContext getInstance() {
-    	
-    	if (instance.get() == null) {    	
-    		instance.set(new TestContext());
-    	}
-    	
-    	return instance.get();
-    }
-
-}
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.synapticpath.naica.attachments.Attachment;
+import com.synapticpath.naica.journal.ResultsJournal;
+
+/**
+ * The TestContext class holds the entire structure of a test together.
+ * 
+ * TestContext encapsulates a 
+ * 
+ *  TODO: detailed documentaiton 
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class TestContext {
+
+	//Here is where all testCases that were/are running are stored, concurrent as workers merge their results here.
+    private ConcurrentMap<String, TestCase> testCases = new ConcurrentHashMap<String, TestCase>();
+    
+    //TestCases in the order they were added.
+    private Queue<TestCase> testCaseOrder = new ConcurrentLinkedQueue<TestCase>();
+    
+    //TestProperties store configuration information that is needed.
+    private TestProperties properties;
+
+    //For convenience reasons, a TestCase that is currently executed is stored here.
+    private TestCase currentTestCase;
+    
+    //When set, every change of a TestCase is written to it as it happens.
+    private ResultsJournal journal;
+    
+    //Counter increments of current step not journaled yet, they are journaled once per step, see flushCounts().
+    private Map<String, Long> pendingCounts = new LinkedHashMap<String, Long>();
+    
+    //True from newTestCase() until stop(), cleanup after a TestCase, e.g. resetting its driver, is not counted.
+    private boolean running;
+    
+    //System.nanoTime by which the Op being executed has to finish, null when it has no deadline.
+    private Long opDeadline;
+    
+    //Reason why current TestCase was cancelled, set by the Watchdog from another thread.
+    private volatile String cancellation;
+    
+    private static ThreadLocal<TestContext> instance = new ThreadLocal<TestContext>();
+
+    /**
+     * Stops current TestCase. When journaling, the TestCase is journaled as finished and may be released
+     * from memory, see {@link ResultsJournal#releaseCompleted(boolean)}. A TestCase that was already stopped
+     * keeps its finish time, e.g. when {@link #finalize()} follows the end of the last TestCase.
+     */
+    public void stop() {
+    	if (!running) {
+    		return;
+    	}
+    	running = false;
+    	if (currentTestCase != null && !currentTestCase.isReleased()) {
+    		currentTestCase.stop();
+    		if (journal != null) {
+    			flushCounts();
+    			journal.caseFinished(currentTestCase);
+    			if (journal.isReleaseCompleted()) {
+    				currentTestCase.release();
+    			}
+    		}
+    	}
+    }
+    
+    /**
+     * Override this method to perform cleanup and other duties after tests are complete.
+     */
+    public void finalize() {
+    	stop();
+    }
+
+    /**
+     * Obtain the properties that were set.  In them find important information needed for the
+     * test to be able to run through.
+     * 
+     * The 2 most important 
+     * 
+     * @return
+     */
+    public TestProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Set the TestProperties, you typically want to do this before the test starts. 
+     * @param properties
+     */
+    public void setProperties(TestProperties properties) {
+        this.properties = properties;
+    }
+
+    public ResultsJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Sets a journal to write results to as they happen, see {@link ResultsJournal}.
+     * @param journal
+     */
+    public void setJournal(ResultsJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Get all accumulated TestCases in this {@link TestContext}.
+     * @return
+     */
+    public Collection<TestCase> getTestCases() {
+        return Collections.unmodifiableCollection(testCaseOrder);
+    }
+
+    /**
+     * Returns the {@link TestCase} with given id or null when there is no such TestCase in this context.
+     * @param id
+     * @return
+     */
+    public TestCase getTestCase(String id) {
+        return testCases.get(id);
+    }
+
+    /**
+     * Adds a TestCase that was executed elsewhere, typically by a worker thread, to this context.
+     * An already present TestCase with the same id is kept.
+     * @param testCase
+     */
+    public void addTestCase(TestCase testCase) {
+        register(testCase);
+    }
+
+    /**
+     * Adds TestCase to the registry unless there already is one with the same id.
+     * 
+     * @param testCase
+     * @return the registered TestCase
+     */
+    private TestCase register(TestCase testCase) {
+        TestCase registered = testCases.putIfAbsent(testCase.getId(), testCase);
+        if (registered == null) {
+            testCaseOrder.add(testCase);
+            return testCase;
+        }
+        return registered;
+    }
+
+    /**
+     * Stops current {@link TestCase} and starts a new one with given id.
+     * @param id
+     * @return
+     */
+    public TestCase newTestCase(String id) {
+        
+        stop();
+         
+        currentTestCase = testCases.get(id);
+        if (currentTestCase == null) {
+
+        	currentTestCase = register(new TestCase(id));
+        }
+        running = true;
+        if (journal != null) {
+            journal.caseStarted(currentTestCase);
+        }
+
+        return currentTestCase;
+    }
+
+    /**
+     * Current TestCase is null when test is not started yet (there are no TestCases) or the
+     * test is already finished - in which case you want to use {@link TestContext#getLastTestCase()}.
+     * @return
+     */
+    public TestCase getCurrentTestCase() {
+        return currentTestCase;
+    }
+
+    /**
+     * A test will have a number of TestCases, call this to get the last one.
+     * 
+     * @return
+     */
+    public TestCase getLastTestCase() {
+        TestCase last = null;
+        for (TestCase testCase :  testCaseOrder) {
+            last = testCase;
+        }
+
+        return last;
+    }
+
+    /**
+     * Add a new test step to current TestCase while adding a number of action descriptions.
+     * @param actions
+     */
+    public void addStep(String ... actions) {
+
+        if (currentTestCase != null) {
+            if (journal != null) {
+                flushCounts();
+            }
+            getCurrentTestCase().addStep();
+            if (journal != null) {
+                journal.step(currentTestCase);
+            }
+            if (actions != null) {
+                for (String action : actions) {
+                    addAction(action);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an action description to current TestCase.  When all actions are printed
+     * to a report, they should allow a person to recreate the test by following the action
+     * descriptions.
+     * 
+     * @param description
+     */
+    public void addAction(String description) {
+        if (currentTestCase != null) {
+            getCurrentTestCase().addAction(description);
+            if (journal != null) {
+                journal.action(currentTestCase, description);
+            }
+        }
+    }
+
+    /**
+     * Adds a test result description.  Use this when you want to report an outcome of a test. 
+     * @param description
+     */
+    public void addResult(String description) {
+        if (currentTestCase != null) {
+            getCurrentTestCase().addResult(description);
+            if (journal != null) {
+                journal.result(currentTestCase, description);
+            }
+        }
+    }
+
+    /**
+     * Records time spent on a part of current step, see {@link Timing}.
+     * 
+     * @param category
+     * @param name describes what was timed
+     * @param nanos
+     */
+    public void addTiming(Timing.Category category, String name, long nanos) {
+        if (currentTestCase != null) {
+            Timing timing = new Timing(category, name, nanos);
+            getCurrentTestCase().addTiming(timing);
+            if (journal != null) {
+                journal.timing(currentTestCase, timing);
+            }
+        }
+    }
+
+    /**
+     * Increments a named counter of current step by one, see {@link TestStep#increment(String, long)}.
+     * 
+     * @param name
+     */
+    public void increment(String name) {
+        increment(name, 1);
+    }
+
+    /**
+     * Adds given amount to a named counter of current step, see {@link TestStep#increment(String, long)}.
+     * Counters are incremented on hot paths such as every driver command, so they are kept in memory
+     * and journaled once per step. Nothing is counted after current TestCase has stopped.
+     * 
+     * @param name
+     * @param amount
+     */
+    public void increment(String name, long amount) {
+        if (currentTestCase != null && running) {
+            getCurrentTestCase().increment(name, amount);
+            if (journal != null) {
+                pendingCounts.merge(name, amount, Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Journals counter increments collected since the last flush, called before a new step is started
+     * and when current TestCase stops.
+     */
+    private void flushCounts() {
+        if (!pendingCounts.isEmpty()) {
+            pendingCounts.forEach((name, amount) -> journal.count(currentTestCase, name, amount));
+            pendingCounts.clear();
+        }
+    }
+
+    /**
+     * Counters summed over all TestCases.
+     * 
+     * @return
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new LinkedHashMap<String, Long>();
+        for (TestCase testCase : getTestCases()) {
+            testCase.getCounters().forEach((name, count) -> counters.merge(name, count, Long::sum));
+        }
+        return counters;
+    }
+
+    /**
+     * Sum of timings of given category over all TestCases in nanoseconds.
+     * 
+     * @param category
+     * @return
+     */
+    public long getTotalNanos(Timing.Category category) {
+        long total = 0;
+        for (TestCase testCase : getTestCases()) {
+            total += testCase.getTotalNanos(category);
+        }
+        return total;
+    }
+
+    /**
+     * Fails current TestCase at current step.
+     */
+    public void fail() {
+        if (currentTestCase != null) {
+            getCurrentTestCase().fail();
+            if (journal != null) {
+                journal.fail(currentTestCase);
+            }
+        }
+    }
+
+    /**
+     * Marks current TestCase as skipped, see {@link TestCase#skip()}.
+     */
+    public void skip() {
+        if (currentTestCase != null) {
+            getCurrentTestCase().skip();
+            if (journal != null) {
+                journal.skip(currentTestCase);
+            }
+        }
+    }
+
+    public Long getOpDeadline() {
+        return opDeadline;
+    }
+
+    /**
+     * Sets the time, as given by {@link System#nanoTime()}, by which the Op being executed has to finish.
+     * Null removes the deadline.
+     * @param opDeadline
+     */
+    public void setOpDeadline(Long opDeadline) {
+        this.opDeadline = opDeadline;
+    }
+
+    /**
+     * Milliseconds left until the deadline of the Op being executed, {@link Long#MAX_VALUE} when it has no deadline.
+     * Waits of actions and conditions should not take longer than this.
+     * @return
+     */
+    public long getRemainingOpMillis() {
+        if (opDeadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(opDeadline - System.nanoTime()));
+    }
+
+    /**
+     * Requests cancellation of current TestCase, remaining Ops of the TestCase are not executed and the TestCase
+     * fails with given reason, see {@link Watchdog}. May be called from any thread.
+     * 
+     * @param reason of cancellation, null clears a previous request
+     */
+    public void cancel(String reason) {
+        this.cancellation = reason;
+    }
+
+    /**
+     * Reason why current TestCase was cancelled or null when it was not.
+     * @return
+     */
+    public String getCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * Called by the {@link Watchdog} from its own thread when current TestCase exceeds its time budget.
+     * Override this method to release resources the TestCase may be blocked on, see SeleniumTestContext.
+     */
+    public void abort() {
+    }
+
+    /**
+     * Called in the thread that executes TestCases after a TestCase was aborted, see {@link #abort()}.
+     * Override this method to replace resources the abort left unusable.
+     */
+    public void recover() {
+    }
+
+    /**
+     * Marks current step of current TestCase as executed by a human.
+     */
+    public void executedByHuman() {
+        if (currentTestCase != null) {
+            getCurrentTestCase().executedByHuman();
+            if (journal != null) {
+                journal.executedByHuman(currentTestCase);
+            }
+        }
+    }
+
+    /**
+     * Call this to find out if the test has failed or not.
+     * @return
+     */
+    public boolean isFailed() {
+    	return getOutcome().equals(TestOutcome.FAILURE);       
+    }
+
+    /**
+     * Add an attachment to current testCase.
+     * @param attachment
+     */
+    public void addAttachment(Attachment attachment) {
+        if (currentTestCase != null) {
+            getCurrentTestCase().addAttachment(attachment);
+            if (journal != null) {
+                journal.attachment(currentTestCase, attachment);
+            }
+        }
+    }
+    
+
+    /**
+     * Get the outcome of the test by analyzing the outcome of each test case.
+     * When one testCase fails, the whole test fails, when one testCase ends with
+     * {@link TestOutcome#CONDITIONAL_SUCCESS}, the entire test will have {@link TestOutcome#CONDITIONAL_SUCCESS}.
+     * 
+     * {@link TestOutcome#SUCCESS} will be returned only if every single TestCase ends
+     * with the same outcome.
+     * 
+     * @return
+     */
+    public TestOutcome getOutcome() {
+
+        boolean conditional = false;
+        for (TestCase testCase : getTestCases()) {
+            switch (testCase.getOutcome()) {
+                //When one of the steps fails, the whole test case fails
+                case FAILURE:
+                    return TestOutcome.FAILURE;
+                case CONDITIONAL_SUCCESS:
+                    conditional = true;
+                    break;
+                case SUCCESS:
+                	//Success is good, nothing to do here.
+                	break;
+                case SKIPPED:
+                	//Skipped TestCase depends on one that did not succeed, that one decides the outcome.
+                	break;
+            }
+        }
+        //Failed test never gets here.
+        return conditional ? TestOutcome.CONDITIONAL_SUCCESS : TestOutcome.SUCCESS;
+    }
+    
+    /**
+     * Since we can only have one instance of TestContext, subclassing a testContext wouldn't
+     * be possible. This method will merge this instance of TestContext with another one, thus
+     * calling {@link TestContext#getInstance()} will always return relevant instance.
+     * 
+     * The instance is bound to the calling thread, TestCases are copied into the concurrent registry
+     * of given context, so no locking is needed.
+     * 
+     * @param testContext
+     */
+    public void mergeInstances(TestContext testContext) {
+    	
+    	TestContext currentInstance = instance.get();
+    	if (currentInstance != null && currentInstance != testContext) {
+    		currentInstance.stop();
+    		for (TestCase testCase : currentInstance.testCaseOrder) {
+    			testContext.register(testCase);
+    		}
+    	}
+    	instance.set(testContext);
+    }
+
+    /**
+     * Creates a TestContext for a worker thread that executes TestCases in parallel with other workers.
+     * The new context shares configuration with this one, but has its own TestCases.
+     * 
+     * Override this method when a worker needs resources of its own, see SeleniumTestContext.
+     * 
+     * @return
+     */
+    public TestContext newWorkerContext() {
+        TestContext context = new TestContext();
+        configureWorkerContext(context);
+        return context;
+    }
+
+    /**
+     * Copies configuration shared by all workers to given worker context.
+     * @param context
+     */
+    protected void configureWorkerContext(TestContext context) {
+        context.setProperties(properties);
+        context.setJournal(journal);
+    }
+
+    /**
+     * Binds given TestContext to the current thread, used when starting a worker thread.
+     * @param testContext
+     */
+    static void setInstance(TestContext testContext) {
+        instance.set(testContext);
+    }
+
+    /**
+     * Unbinds TestContext from the current thread, used when a worker thread is done.
+     */
+    static void removeInstance() {
+        instance.remove();
+    }
+
+    /**
+     * TestContext is a singleton, get the single instance of it from ThreadLocal or 
+     * create new one if it doesn't exist yet.
+     * 
+     * The instance is confined to the calling thread, therefore no synchronization is needed.
+     * 
+     * @return
+     */
+    public static TestContext getInstance() {
+    	
+    	TestContext context = instance.get();
+    	if (context == null) {    	
+    		context = new TestContext();
+    		instance.set(context);
+    	}
+    	
+    	return context;
+    }
+
+}
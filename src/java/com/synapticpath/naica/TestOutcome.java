@@ -1,28 +1,29 @@
-/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
-
- This program is free software: you can redistribute it and/or modify
-    it under the terms of the GNU General Public License as published by
-    the Free Software Foundation, either version 3 of the License, or
-    (at your option) any later version.
-
-    This program is distributed in the hope that it will be useful,
-    but WITHOUT ANY WARRANTY; without even the implied warranty of
-    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
-    GNU General Public License for more details.
-
-    You should have received a copy of the GNU General Public License
-    along with this program.  If not, see <http://www.gnu.org/licenses/>.
-*/
-package com.synapticpath.naica;
-
-/**
- * A Test can have one of three outcomes, they are enumerated here.
- * 
- * @author developer@synapticpath.com
- *
- */
-public enum TestOutcome {
-    SUCCESS,
-    FAILURE,
-    CONDITIONAL_SUCCESS;  //Conditional means that the test couldn't be passed/failed automatically.
-}
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+/**
+ * A Test can have one of these outcomes, they are enumerated here.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public enum TestOutcome {
+    SUCCESS,
+    FAILURE,
+    CONDITIONAL_SUCCESS,  //Conditional means that the test couldn't be passed/failed automatically.
+    SKIPPED;  //Skipped means that the test was not run, because a test it depends on did not succeed.
+}
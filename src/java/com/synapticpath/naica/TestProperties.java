@@ -35,4 +35,13 @@ public interface TestProperties {
 	 */
 	String getReportDirectory();	
 	
+	/**
+	 * Default number of seconds a single Op may take in total, actions and conditions of the Op only
+	 * wait for what is left of it. 0 means Ops have no deadline, see BaseOp#deadline(int).
+	 * @return
+	 */
+	default int getOpTimeout() {
+		return 0;
+	}
+	
 }
@@ -15,7 +15,28 @@
 */
 package com.synapticpath.naica;
 
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.synapticpath.naica.journal.ResultsJournal;
 import com.synapticpath.naica.reports.HtmlFileSystemReport;
+import com.synapticpath.naica.reports.MergedReport;
 import com.synapticpath.naica.reports.ReportGenerator;
 
 /**
@@ -26,15 +47,71 @@ import com.synapticpath.naica.reports.ReportGenerator;
  * calls a report generator to turn Test result information stored in TestContext into something
  * human can view.
  * 
+ * TestCaseRunners can be executed in parallel by a number of workers, see {@link #setWorkers(int)}.
+ * A TestCaseRunner runs only after TestCases it depends on succeeded, otherwise it is skipped,
+ * see {@link TestCaseRunner#dependsOn(String...)} and {@link TestCaseScheduler}. When the suite is done,
+ * the critical path, that is the chain of dependent TestCases that took longest, is reported.
+ * 
+ * With a {@link DurationHistory}, durations of TestCases are kept across runs, and with {@link Scheduling#LONGEST_FIRST}
+ * the longest TestCases are started first, so that no worker is left with a long TestCase at the end of the suite.
+ * 
+ * With a time budget per TestCase or for the whole suite, a {@link Watchdog} cancels TestCases that run out of it,
+ * see {@link #setTestCaseBudget(int)} and {@link #setSuiteBudget(int)}.
+ * 
+ * When TestContext has a {@link ResultsJournal}, reports are generated from the journal, as finished
+ * TestCases may have been released from memory.
+ * 
  * @author developer@synapticpath.com
  *
  */
 public class TestSuiteRunner {
 	
+	/**
+	 * Order in which ready TestCases are started.
+	 */
+	public enum Scheduling {
+		/** In the order in which runners were given. */
+		GIVEN_ORDER,
+		/** Longest first according to {@link DurationHistory}, runners without history are estimated. */
+		LONGEST_FIRST
+	}
+	
+	private static final Logger logger = Logger.getLogger(TestSuiteRunner.class.getName());
+	
 	private TestCaseRunner [] runners;
 	
+	//Runners executed by this JVM, all runners unless a shard is set
+	private TestCaseRunner [] scheduled;
+	
 	private ReportGenerator [] reports;
 	
+	private int workers = 1;
+	
+	private List<String> criticalPath = Collections.emptyList();
+	
+	private long criticalPathMillis;
+	
+	private Scheduling scheduling = Scheduling.GIVEN_ORDER;
+	
+	private DurationHistory durationHistory;
+	
+	private Shard shard = Shard.fromSystemProperties();
+	
+	private Path previousResults;
+	
+	//TestCases of the previous run that succeeded, they are not run again
+	private Map<String, TestCase> carriedOver = new LinkedHashMap<String, TestCase>();
+	
+	//Time budgets in seconds, 0 means unlimited
+	private int testCaseBudget;
+	
+	private int suiteBudget;
+	
+	private Watchdog watchdog;
+	
+	//Time in milliseconds after which no TestCase is started, 0 when there is no suite budget
+	private long suiteDeadline;
+	
 	/**
 	 * Initialize the TestSuiteRunner with TestCaseRunners that constitute the 
 	 * "TestSuite" to test.
@@ -58,6 +135,30 @@ public class TestSuiteRunner {
 		this.reports = reports;
 	}
 	
+	/**
+	 * Returns the number of workers that execute TestCaseRunners.
+	 * @return
+	 */
+	public int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * Sets the number of workers that execute TestCaseRunners in parallel, default is 1 (serial execution).
+	 * 
+	 * Each worker runs in its own thread with its own TestContext obtained through
+	 * {@link TestContext#newWorkerContext()}. When all workers are done, their TestCases are
+	 * merged into the TestContext of the calling thread in the order in which runners were given.
+	 * 
+	 * @param workers
+	 */
+	public void setWorkers(int workers) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("Number of workers has to be a positive number.");
+		}
+		this.workers = workers;
+	}
+
 	/**
 	 * Runs all TestCaseRunners, finalizes TestContext, generates report if {@link ReportGenerator} is specified. 
 	 */
@@ -67,23 +168,506 @@ public class TestSuiteRunner {
         renderResults();        
     }
 
-	protected void execute() {		
-		for (TestCaseRunner runner: runners) {
+	public Scheduling getScheduling() {
+		return scheduling;
+	}
+
+	/**
+	 * Sets the order in which ready TestCases are started, default is {@link Scheduling#GIVEN_ORDER}.
+	 * {@link Scheduling#LONGEST_FIRST} needs a {@link DurationHistory}.
+	 * 
+	 * @param scheduling
+	 */
+	public void setScheduling(Scheduling scheduling) {
+		this.scheduling = scheduling;
+	}
+
+	public DurationHistory getDurationHistory() {
+		return durationHistory;
+	}
+
+	/**
+	 * Sets history that provides estimated durations of TestCases, durations of executed TestCases are
+	 * recorded to it and saved when the suite is done. A shard assigning TestCases by duration, see
+	 * {@link Shard.Sharding#DURATION}, only reads the history, as every shard has to use the same one.
+	 * 
+	 * @param durationHistory
+	 */
+	public void setDurationHistory(DurationHistory durationHistory) {
+		this.durationHistory = durationHistory;
+	}
+
+	public Shard getShard() {
+		return shard;
+	}
+
+	/**
+	 * Sets the part of the suite this JVM runs, null runs all TestCases. By default the shard is read
+	 * from system properties, see {@link Shard#fromSystemProperties()}.
+	 * 
+	 * Results of shards can be merged into a single report with {@link MergedReport}.
+	 * 
+	 * @param shard
+	 */
+	public void setShard(Shard shard) {
+		this.shard = shard;
+	}
+
+	public Path getPreviousResults() {
+		return previousResults;
+	}
+
+	/**
+	 * Turns on rerun mode: only TestCases that failed, were conditionally successful or skipped in the previous run,
+	 * and TestCases that are new, are run. Results of the other TestCases are carried over from the previous run,
+	 * so reports still show the whole suite. Dependencies on carried over TestCases are satisfied.
+	 * 
+	 * Results of the previous run are read from its journal, a {@link ResultsJournal} keeps the journal it replaced,
+	 * see {@link ResultsJournal#getPreviousFile()}. Null turns rerun mode off.
+	 * 
+	 * @param previousJournal
+	 */
+	public void setPreviousResults(Path previousJournal) {
+		this.previousResults = previousJournal;
+	}
+
+	public int getTestCaseBudget() {
+		return testCaseBudget;
+	}
+
+	/**
+	 * Sets the time in seconds a single TestCase may take, 0 (default) means unlimited. A TestCase that takes longer is
+	 * cancelled by a {@link Watchdog} and fails, its resources are aborted and replaced, see {@link TestContext#abort()}
+	 * and {@link TestContext#recover()}, so that the worker can move on to the next TestCase.
+	 * 
+	 * @param seconds
+	 */
+	public void setTestCaseBudget(int seconds) {
+		if (seconds < 0) {
+			throw new IllegalArgumentException("Time budget cannot be negative.");
+		}
+		this.testCaseBudget = seconds;
+	}
+
+	public int getSuiteBudget() {
+		return suiteBudget;
+	}
+
+	/**
+	 * Sets the time in seconds the whole suite may take, 0 (default) means unlimited. Running TestCases are cancelled
+	 * when the budget runs out, see {@link #setTestCaseBudget(int)}, TestCases that did not start yet fail as not executed.
+	 * 
+	 * @param seconds
+	 */
+	public void setSuiteBudget(int seconds) {
+		if (seconds < 0) {
+			throw new IllegalArgumentException("Time budget cannot be negative.");
+		}
+		this.suiteBudget = seconds;
+	}
+
+	/**
+	 * Returns the number of TestCases the {@link Watchdog} cancelled in the last run.
+	 * @return
+	 */
+	public int getWatchdogFiredCount() {
+		return watchdog != null ? watchdog.getFiredCount() : 0;
+	}
+
+	/**
+	 * Returns ids of TestCases on the critical path of the last run, see {@link TestCaseScheduler#getCriticalPath(java.util.function.ToLongFunction)}.
+	 * @return
+	 */
+	public List<String> getCriticalPath() {
+		return criticalPath;
+	}
+	
+	/**
+	 * Returns total duration of TestCases on the critical path of the last run in milliseconds, no number of
+	 * workers can make the suite finish faster.
+	 * @return
+	 */
+	public long getCriticalPathMillis() {
+		return criticalPathMillis;
+	}
+
+	protected void execute() {
+		scheduled = selectRunners();
+		for (TestCase testCase : carriedOver.values()) {
+			record(TestContext.getInstance(), testCase);
+		}
+		TestCaseScheduler scheduler = createScheduler();
+		if (scheduler.hasDependencies()) {
+			List<TestCaseRunner> longest = scheduler.getCriticalPath(runner -> 1);
+			logger.info(format("Longest chain of dependent TestCases has %s TestCases: %s.", longest.size(), ids(longest)));
+		}
+		
+		long start = System.currentTimeMillis();
+		suiteDeadline = suiteBudget > 0 ? start + suiteBudget * 1000L : 0;
+		watchdog = testCaseBudget > 0 || suiteBudget > 0 ? new Watchdog() : null;
+		try {
+			if (workers > 1 && scheduled.length > 1) {
+				executeParallel(scheduler);
+			} else {
+				runScheduled(scheduler);
+			}
+		} finally {
+			if (watchdog != null) {
+				watchdog.shutdown();
+				logger.info(format("Watchdog cancelled %s TestCases.", watchdog.getFiredCount()));
+			}
+		}
+		reportCriticalPath(scheduler, System.currentTimeMillis() - start);
+		recordDurations();
+	}
+	
+	/**
+	 * Returns runners of the shard, or all runners when there is no shard.
+	 */
+	protected TestCaseRunner [] selectRunners() {
+		TestCaseRunner [] selected = runners;
+		if (shard != null) {
+			if (isDurationSharded()) {
+				logger.warning(format("Running %s, every shard has to read an identical duration history %s, otherwise "
+						+ "TestCases run in several shards or in none. The history is not saved by shards.", 
+						shard, durationHistory != null ? durationHistory.getFile() : "(none set, all TestCases estimated equal)"));
+			}
+			selected = shard.select(runners, runner -> durationHistory != null ? durationHistory.getEstimate(runner.getId()) : 1);
+			logger.info(format("Running %s of %s TestCases as %s.", selected.length, runners.length, shard));
+		}
+		
+		carriedOver.clear();
+		if (previousResults != null) {
+			selected = selectRerun(selected);
+		}
+		return selected;
+	}
+	
+	/**
+	 * Keeps runners whose TestCase did not succeed in the previous run or is new, TestCases that succeeded
+	 * are carried over from the previous run instead.
+	 */
+	private TestCaseRunner [] selectRerun(TestCaseRunner [] selected) {
+		Map<String, TestCase> previous;
+		try {
+			previous = ResultsJournal.read(previousResults);
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, format("Cannot read previous results %s, running all TestCases.", previousResults), e);
+			return selected;
+		}
+		
+		List<TestCaseRunner> rerun = new ArrayList<TestCaseRunner>();
+		for (TestCaseRunner runner : selected) {
+			TestCase testCase = previous.get(runner.getId());
+			if (testCase != null && testCase.getOutcome() == TestOutcome.SUCCESS) {
+				carriedOver.put(runner.getId(), testCase);
+			} else {
+				rerun.add(runner);
+			}
+		}
+		
+		logger.info(format("Rerunning %s TestCases that did not succeed in %s or are new, %s are carried over.", 
+				rerun.size(), previousResults, carriedOver.size()));
+		return rerun.toArray(new TestCaseRunner[rerun.size()]);
+	}
+	
+	protected TestCaseScheduler createScheduler() {
+		if (scheduling == Scheduling.LONGEST_FIRST) {
+			if (durationHistory == null) {
+				throw new IllegalStateException("Longest first scheduling needs a DurationHistory.");
+			}
+			TestCaseScheduler scheduler = new TestCaseScheduler(runner -> durationHistory.getEstimate(runner.getId()), carriedOver.keySet(), scheduled);
+			logger.info(format("Scheduling TestCases longest first, estimated duration with %s workers is %s ms.", 
+					workers, scheduler.estimateMakespan(workers)));
+			return scheduler;
+		}
+		return new TestCaseScheduler(null, carriedOver.keySet(), scheduled);
+	}
+	
+	/**
+	 * Records durations of executed TestCases to {@link DurationHistory}, 
+	 * skipped TestCases and TestCases that were never run are left out. Shards assigned by duration leave
+	 * the history unchanged, so that all shards keep reading the same one.
+	 */
+	private void recordDurations() {
+		if (durationHistory == null || isDurationSharded()) {
+			return;
+		}
+		
+		for (TestCaseRunner runner : scheduled) {
+			TestCase testCase = TestContext.getInstance().getTestCase(runner.getId());
+			if (testCase != null && testCase.isExecuted()) {
+				durationHistory.record(runner.getId(), testCase.getDuration());
+			}
+		}
+		try {
+			durationHistory.save();
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, format("Cannot save duration history %s.", durationHistory.getFile()), e);
+		}
+	}
+	
+	private boolean isDurationSharded() {
+		return shard != null && shard.getSharding() == Shard.Sharding.DURATION;
+	}
+	
+	/**
+	 * Executes runners using a bounded pool of workers. Every worker takes ready runners from the scheduler
+	 * until there are none left.
+	 */
+	protected void executeParallel(TestCaseScheduler scheduler) {
+		
+		TestContext suiteContext = TestContext.getInstance();
+		int poolSize = Math.min(workers, scheduled.length);
+		
+		logger.info(format("Executing %s TestCases with %s workers.", scheduled.length, poolSize));
+		
+		ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+		List<Future<TestContext>> futures = new ArrayList<Future<TestContext>>();
+		for (int i = 0; i < poolSize; i++) {
+			futures.add(executor.submit(() -> runWorker(suiteContext, scheduler)));
+		}
+		executor.shutdown();
+		
+		List<TestContext> workerContexts = new ArrayList<TestContext>();
+		for (Future<TestContext> future : futures) {
+			try {
+				workerContexts.add(future.get());
+			} catch (ExecutionException e) {
+				logger.log(Level.SEVERE, "Worker failed.", e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.log(Level.SEVERE, "Interrupted while waiting for workers.", e);
+			}
+		}
+		
+		mergeResults(suiteContext, workerContexts);
+	}
+	
+	/**
+	 * Body of a single worker, runs scheduled runners with a TestContext of its own.
+	 */
+	private TestContext runWorker(TestContext suiteContext, TestCaseScheduler scheduler) {
+		
+		TestContext.setInstance(suiteContext.newWorkerContext());
+		try {
+			runScheduled(scheduler);
+		} finally {
+			TestContext.getInstance().finalize();
+		}
+		TestContext workerContext = TestContext.getInstance();
+		TestContext.removeInstance();
+		return workerContext;
+	}
+	
+	/**
+	 * Runs runners handed out by the scheduler in the TestContext of the calling thread until there are none left.
+	 * A runner that throws an Error ends the calling worker, it is still reported to the scheduler as failed,
+	 * so that other workers do not wait for it.
+	 */
+	private void runScheduled(TestCaseScheduler scheduler) {
+		try {
+			TestCaseRunner runner;
+			while ((runner = scheduler.next()) != null) {
+				boolean succeeded = false;
+				try {
+					succeeded = isSuiteBudgetExpired() ? notExecuted(runner) : runTestCase(runner);
+				} finally {
+					scheduler.completed(runner, succeeded).forEach(this::skip);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.log(Level.SEVERE, "Interrupted while waiting for TestCases to become ready.", e);
+		}
+	}
+	
+	private boolean isSuiteBudgetExpired() {
+		return suiteDeadline > 0 && System.currentTimeMillis() >= suiteDeadline;
+	}
+	
+	/**
+	 * Runs a single runner, a runner that throws an exception fails its TestCase. The runner is watched
+	 * by the {@link Watchdog} when there is a time budget, after a cancelled TestCase the context recovers.
+	 * @return true when the TestCase did not fail
+	 */
+	private boolean runTestCase(TestCaseRunner runner) {
+		Watchdog.Watch watch = watch(runner);
+		try {
 			runner.run();
-		}		
+		} catch (RuntimeException e) {
+			logger.log(Level.SEVERE, format("TestCase %s failed with an exception.", runner.getId()), e);
+			TestContext.getInstance().fail();
+			TestContext.getInstance().stop();
+		} finally {
+			if (watch != null) {
+				watch.cancel();
+				//Clears interrupt of the Watchdog, so that it does not affect the next TestCase.
+				Thread.interrupted();
+				TestContext.getInstance().cancel(null);
+				if (watch.isFired()) {
+					TestContext.getInstance().recover();
+				}
+			}
+		}
+		TestCase testCase = TestContext.getInstance().getTestCase(runner.getId());
+		return testCase != null && !testCase.isFailed();
+	}
+	
+	/**
+	 * Starts watching given runner with the time left of its own budget or of the suite budget, whichever runs out first.
+	 * @return the watch or null when there is no budget
+	 */
+	private Watchdog.Watch watch(TestCaseRunner runner) {
+		if (watchdog == null) {
+			return null;
+		}
+		long budget = testCaseBudget > 0 ? testCaseBudget * 1000L : Long.MAX_VALUE;
+		String reason = format("TestCase exceeded its time budget of %s s and was cancelled.", testCaseBudget);
+		if (suiteDeadline > 0 && suiteDeadline - System.currentTimeMillis() < budget) {
+			budget = suiteDeadline - System.currentTimeMillis();
+			reason = format("TestCase was cancelled, the suite exceeded its time budget of %s s.", suiteBudget);
+		}
+		return watchdog.watch(TestContext.getInstance(), budget, reason);
+	}
+	
+	/**
+	 * Records a failed TestCase for a runner that was not started because the suite ran out of its time budget.
+	 * @return false as the TestCase did not succeed
+	 */
+	private boolean notExecuted(TestCaseRunner runner) {
+		logger.warning(format("Not executing TestCase %s, the suite exceeded its time budget.", runner.getId()));
+		
+		TestCase testCase = new TestCase(runner.getId());
+		testCase.addResult(format("TestCase was not executed, the suite exceeded its time budget of %s s.", suiteBudget));
+		testCase.notExecuted();
+		testCase.fail();
+		testCase.stop();
+		record(TestContext.getInstance(), testCase);
+		return false;
+	}
+	
+	/**
+	 * Records a skipped TestCase for a runner that depends on a TestCase that did not succeed.
+	 */
+	protected void skip(TestCaseRunner runner, String failedId) {
+		logger.warning(format("Skipping TestCase %s, it depends on TestCase %s which did not succeed.", runner.getId(), failedId));
+		
+		TestCase testCase = new TestCase(runner.getId());
+		testCase.addResult(format("TestCase was skipped, it depends on TestCase %s which did not succeed.", failedId));
+		testCase.skip();
+		testCase.stop();
+		record(TestContext.getInstance(), testCase);
+	}
+	
+	/**
+	 * Adds a TestCase that was not executed through given context to it, and to its journal if there is one.
+	 */
+	private void record(TestContext context, TestCase testCase) {
+		ResultsJournal journal = context.getJournal();
+		if (journal != null) {
+			journal.record(testCase);
+			if (journal.isReleaseCompleted()) {
+				testCase.release();
+			}
+		}
+		context.addTestCase(testCase);
+	}
+	
+	/**
+	 * Finds the chain of dependent TestCases that took longest to run.
+	 */
+	private void reportCriticalPath(TestCaseScheduler scheduler, long elapsedMillis) {
+		TestContext context = TestContext.getInstance();
+		ToLongFunction<TestCaseRunner> duration = runner -> {
+			TestCase testCase = context.getTestCase(runner.getId());
+			return testCase != null ? testCase.getDuration() : 0;
+		};
+		
+		List<TestCaseRunner> path = scheduler.getCriticalPath(duration);
+		criticalPath = Collections.unmodifiableList(ids(path));
+		criticalPathMillis = path.stream().mapToLong(duration).sum();
+		
+		logger.info(format("Critical path %s took %s ms, the suite took %s ms.", criticalPath, criticalPathMillis, elapsedMillis));
+	}
+	
+	private static List<String> ids(List<TestCaseRunner> runners) {
+		List<String> ids = new ArrayList<String>();
+		for (TestCaseRunner runner : runners) {
+			ids.add(runner.getId());
+		}
+		return ids;
+	}
+	
+	/**
+	 * Moves TestCases from worker contexts into the suite context, keeping the order of runners.
+	 * A runner that no worker got to execute ends up as a failed TestCase.
+	 */
+	private void mergeResults(TestContext suiteContext, List<TestContext> workerContexts) {
+		
+		Set<String> ids = new LinkedHashSet<String>();
+		for (TestCaseRunner runner: scheduled) {
+			ids.add(runner.getId());
+		}
+		
+		for (String id : ids) {
+			TestCase testCase = null;
+			for (TestContext workerContext : workerContexts) {
+				testCase = workerContext.getTestCase(id);
+				if (testCase != null) {
+					break;
+				}
+			}
+			
+			if (testCase == null) {
+				testCase = new TestCase(id);
+				testCase.addResult("TestCase was not executed.");
+				testCase.notExecuted();
+				testCase.fail();
+				testCase.stop();
+				record(suiteContext, testCase);
+			} else {
+				suiteContext.addTestCase(testCase);
+			}
+		}
 	}
 	
 	protected void finalize() {
 		TestContext.getInstance().finalize();
+		if (TestContext.getInstance().getJournal() != null) {
+			TestContext.getInstance().getJournal().close();
+		}
 	}
 
 	protected void renderResults() {
 		if (reports != null) {
+			TestContext results = getResults();
 			for (ReportGenerator report: reports) {
-				report.generate(TestContext.getInstance());
+				report.generate(results);
 			}
 		}
 		
 	}
+	
+	/**
+	 * Returns TestContext holding complete results, when TestCases were released from memory it is
+	 * rebuilt from the journal.
+	 * 
+	 * @return
+	 */
+	protected TestContext getResults() {
+		TestContext context = TestContext.getInstance();
+		ResultsJournal journal = context.getJournal();
+		if (journal == null || !journal.isReleaseCompleted()) {
+			return context;
+		}
+		
+		try {
+			return ResultsJournal.replay(journal.getFile(), context.getProperties());
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, format("Cannot read journal %s, reporting results held in memory.", journal.getFile()), e);
+			return context;
+		}
+	}
 
 }
@@ -0,0 +1,100 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+/**
+ * Time spent on a single part of a {@link TestStep}, measured with {@link System#nanoTime()}.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class Timing {
+	
+	/**
+	 * What the time was spent on.
+	 */
+	public static enum Category {
+		/**
+		 * Whole execution of an Op, includes all other categories and framework overhead.
+		 */
+		OP,
+		/**
+		 * Performing an Action.
+		 */
+		ACTION,
+		/**
+		 * Evaluating a Condition, which mostly means waiting for the application.
+		 */
+		WAIT,
+		/**
+		 * Taking snapshots and other attachments.
+		 */
+		CAPTURE,
+		/**
+		 * Adding results of an Op to the TestContext.
+		 */
+		REPORTING,
+		/**
+		 * Commands sent to a driver, overlaps with the other categories. Recorded only for instrumented drivers.
+		 */
+		COMMAND;
+	}
+	
+	private Category category;
+	
+	private String name;
+	
+	private long nanos;
+	
+	public Timing(Category category, String name, long nanos) {
+		this.category = category;
+		this.name = name;
+		this.nanos = nanos;
+	}
+
+	public Category getCategory() {
+		return category;
+	}
+
+	/**
+	 * Describes what was timed, e.g. an Action.
+	 * @return
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+	
+	/**
+	 * Returns {@link System#nanoTime()}, use it to take the start time of something to be timed.
+	 * @return
+	 */
+	public static long start() {
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Returns nanoseconds that elapsed since given start time, see {@link #start()}.
+	 * @param start
+	 * @return
+	 */
+	public static long since(long start) {
+		return System.nanoTime() - start;
+	}
+}
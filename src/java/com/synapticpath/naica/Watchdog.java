@@ -0,0 +1,132 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import static java.lang.String.format;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Enforces time budgets of TestCases. A TestCase is watched while it runs, when it exceeds its budget the watchdog
+ * cancels it: the TestContext is marked as cancelled, see {@link TestContext#cancel(String)}, resources the TestCase
+ * may be blocked on are aborted, see {@link TestContext#abort()}, and the thread running the TestCase is interrupted.
+ * 
+ * The TestCase then fails with the reason of cancellation, see {@link TestCaseRunner}, and the worker recovers
+ * through {@link TestContext#recover()} before it moves on.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class Watchdog {
+	
+	private static final Logger logger = Logger.getLogger(Watchdog.class.getName());
+	
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "naica-watchdog");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private final AtomicInteger firedCount = new AtomicInteger();
+	
+	/**
+	 * A TestCase being watched.
+	 */
+	public class Watch {
+		
+		private final TestContext context;
+		
+		private final Thread thread;
+		
+		private final String reason;
+		
+		private ScheduledFuture<?> future;
+		
+		private boolean done;
+		
+		private boolean fired;
+		
+		private Watch(TestContext context, Thread thread, String reason) {
+			this.context = context;
+			this.thread = thread;
+			this.reason = reason;
+		}
+		
+		private synchronized void fire() {
+			if (done) {
+				return;
+			}
+			done = true;
+			fired = true;
+			firedCount.incrementAndGet();
+			logger.warning(format("Cancelling thread %s: %s", thread.getName(), reason));
+			
+			context.cancel(reason);
+			try {
+				context.abort();
+			} catch (RuntimeException e) {
+				logger.log(Level.WARNING, "Failed to abort TestContext.", e);
+			}
+			thread.interrupt();
+		}
+		
+		/**
+		 * Stops watching, once this method returns the watchdog does not fire for this TestCase any more.
+		 */
+		public synchronized void cancel() {
+			done = true;
+			future.cancel(false);
+		}
+		
+		public synchronized boolean isFired() {
+			return fired;
+		}
+	}
+	
+	/**
+	 * Starts watching the TestCase current thread runs with given context.
+	 * 
+	 * @param context of the TestCase
+	 * @param budgetMillis time the TestCase may take
+	 * @param reason of cancellation, reported as a result of the TestCase
+	 * @return the watch, cancel it when the TestCase is done
+	 */
+	public Watch watch(TestContext context, long budgetMillis, String reason) {
+		Watch watch = new Watch(context, Thread.currentThread(), reason);
+		synchronized (watch) {
+			watch.future = timer.schedule(watch::fire, Math.max(0, budgetMillis), TimeUnit.MILLISECONDS);
+		}
+		return watch;
+	}
+	
+	/**
+	 * Number of TestCases the watchdog has cancelled.
+	 * @return
+	 */
+	public int getFiredCount() {
+		return firedCount.get();
+	}
+	
+	public void shutdown() {
+		timer.shutdownNow();
+	}
+}
@@ -1,35 +1,35 @@
-/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
-
- This program is free software: you can redistribute it and/or modify
-    it under the terms of the GNU General Public License as published by
-    the Free Software Foundation, either version 3 of the License, or
-    (at your option) any later version.
-
-    This program is distributed in the hope that it will be useful,
-    but WITHOUT ANY WARRANTY; without even the implied warranty of
-    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
-    GNU General Public License for more details.
-
-    You should have received a copy of the GNU General Public License
-    along with this program.  If not, see <http://www.gnu.org/licenses/>.
-*/
-package com.synapticpath.naica.actions;
-
-import com.synapticpath.naica.ops.Op;
-
-/**
- * Use this functional interface to define actions to be performed by an {@link Op}.
- * 
- * @author developer@synapticpath.com
- *
- */
-@FunctionalInterface
-public interface Action {
-
-    /**
-     * When called, this Action will do its useful code.
-     * 
-     * @return
-     */
-    boolean perform();
-}
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.actions;
+
+import com.synapticpath.naica.ops.Op;
+
+/**
+ * Use this functional interface to define actions to be performed by an {@link Op}.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+@FunctionalInterface
+public interface Action {
+
+    /**
+     * When called, this Action will do its useful code.
+     * 
+     * @return
+     */
+    boolean perform();
+}
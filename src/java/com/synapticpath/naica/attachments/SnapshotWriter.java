@@ -0,0 +1,240 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.attachments;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes snapshot data to disk in background threads, so that a test does not wait for
+ * decoding and disk writes while taking snapshots.
+ * 
+ * The queue of pending writes is bounded, when it is full {@link #write(byte[], Path)} blocks until
+ * a writer thread catches up (back-pressure). Call {@link #flush()} before the files are needed,
+ * e.g. before a report is generated.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class SnapshotWriter {
+	
+	private static final Logger logger = Logger.getLogger(SnapshotWriter.class.getName());
+	
+	private final BlockingQueue<Write> queue;
+	
+	private final Thread [] writers;
+	
+	private final Object monitor = new Object();
+	
+	//Number of writes that have been queued but are not finished yet.
+	private long pending;
+	
+	private volatile boolean shutdown;
+	
+	private final AtomicLong writtenCount = new AtomicLong();
+	
+	private final AtomicLong failedCount = new AtomicLong();
+	
+	private final AtomicLong writeNanos = new AtomicLong();
+	
+	private final AtomicLong blockedNanos = new AtomicLong();
+	
+	private final AtomicLong maxQueueDepth = new AtomicLong();
+	
+	private static class Write {
+		private final byte [] data;
+		private final String base64;
+		private final Path file;
+		
+		private Write(byte [] data, String base64, Path file) {
+			this.data = data;
+			this.base64 = base64;
+			this.file = file;
+		}
+	}
+	
+	/**
+	 * Creates and starts a writer.
+	 * 
+	 * @param capacity maximum number of queued writes before callers are blocked
+	 * @param threads number of background writer threads
+	 */
+	public SnapshotWriter(int capacity, int threads) {
+		if (capacity < 1 || threads < 1) {
+			throw new IllegalArgumentException("Capacity and number of threads have to be positive numbers.");
+		}
+		queue = new ArrayBlockingQueue<Write>(capacity);
+		writers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			writers[i] = new Thread(this::processQueue, "naica-snapshot-writer-" + i);
+			writers[i].setDaemon(true);
+			writers[i].start();
+		}
+	}
+	
+	/**
+	 * Queues given data to be written to a file.
+	 * 
+	 * @param data
+	 * @param file
+	 */
+	public void write(byte [] data, Path file) {
+		enqueue(new Write(data, null, file));
+	}
+	
+	/**
+	 * Queues given base64 encoded data to be decoded and written to a file.
+	 * 
+	 * @param base64
+	 * @param file
+	 */
+	public void writeBase64(String base64, Path file) {
+		enqueue(new Write(null, base64, file));
+	}
+	
+	private void enqueue(Write write) {
+		if (shutdown) {
+			throw new IllegalStateException("SnapshotWriter has been shut down.");
+		}
+		
+		synchronized (monitor) {
+			pending++;
+		}
+		
+		long begin = System.nanoTime();
+		try {
+			queue.put(write);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.severe(format("Interrupted while queueing snapshot %s, writing it directly.", write.file));
+			store(write);
+		} finally {
+			blockedNanos.addAndGet(System.nanoTime() - begin);
+		}
+		maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+	}
+	
+	private void processQueue() {
+		while (true) {
+			try {
+				Write write = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (write != null) {
+					store(write);
+				} else if (shutdown) {
+					return;
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+	
+	private void store(Write write) {
+		long begin = System.nanoTime();
+		try {
+			byte [] data = write.data != null ? write.data : Base64.getMimeDecoder().decode(write.base64);
+			if (write.file.getParent() != null) {
+				Files.createDirectories(write.file.getParent());
+			}
+			Files.write(write.file, data);
+			writtenCount.incrementAndGet();
+		} catch (IOException | RuntimeException e) {
+			//A single bad snapshot must not stop the writer thread, queued snapshots would never be written.
+			failedCount.incrementAndGet();
+			logger.log(Level.SEVERE, format("Cannot write snapshot %s", write.file), e);
+		} finally {
+			writeNanos.addAndGet(System.nanoTime() - begin);
+			synchronized (monitor) {
+				pending--;
+				monitor.notifyAll();
+			}
+		}
+	}
+	
+	/**
+	 * Blocks until all queued snapshots are written.
+	 */
+	public void flush() {
+		synchronized (monitor) {
+			while (pending > 0) {
+				try {
+					monitor.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Flushes queued snapshots and stops writer threads.
+	 */
+	public void shutdown() {
+		flush();
+		shutdown = true;
+		
+		logger.info(format("SnapshotWriter shut down, written: %s, failed: %s, average write latency: %s ms, max queue depth: %s, blocked: %s ms.", 
+				getWrittenCount(), getFailedCount(), getAverageWriteLatencyMillis(), getMaxQueueDepth(), getTotalBlockedMillis()));
+	}
+	
+	/**
+	 * Number of snapshots waiting in the queue.
+	 * @return
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+	
+	public long getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+	
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+	
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+	
+	/**
+	 * Average time of decoding and writing a single snapshot.
+	 * @return
+	 */
+	public double getAverageWriteLatencyMillis() {
+		long count = writtenCount.get() + failedCount.get();
+		return count == 0 ? 0 : writeNanos.get() / 1e6 / count;
+	}
+	
+	/**
+	 * Total time callers spent in {@link #write(byte[], Path)}, mostly blocked by a full queue.
+	 * @return
+	 */
+	public long getTotalBlockedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(blockedNanos.get());
+	}
+}
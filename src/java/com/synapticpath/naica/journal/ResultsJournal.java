@@ -0,0 +1,401 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.journal;
+
+import static java.lang.String.format;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.synapticpath.naica.TestCase;
+import com.synapticpath.naica.TestContext;
+import com.synapticpath.naica.TestProperties;
+import com.synapticpath.naica.TestStep;
+import com.synapticpath.naica.Timing;
+import com.synapticpath.naica.attachments.Attachment;
+import com.synapticpath.naica.attachments.SnapshotAttachment;
+
+/**
+ * Append-only journal of test results. Every change of a {@link TestCase} is written to a file as soon as
+ * it happens, so results survive a crash of the JVM or a hung browser, and completed TestCases can be
+ * released from memory, see {@link TestCase#release()}.
+ * 
+ * Use {@link TestContext#setJournal(ResultsJournal)} to start journaling, {@link #replay(Path, TestProperties)}
+ * rebuilds a TestContext with all TestCases from a journal, which can then be passed to any ReportGenerator.
+ * 
+ * Each line of the journal is one event: time in millis, event type, TestCase id and event fields, separated
+ * by tabulators. Events of a TestCase are written by a single thread, therefore events of different TestCases
+ * can interleave.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class ResultsJournal implements Closeable {
+	
+	private static final Logger logger = Logger.getLogger(ResultsJournal.class.getName());
+	
+	private static final String CASE = "CASE";
+	private static final String STEP = "STEP";
+	private static final String ACTION = "ACTION";
+	private static final String RESULT = "RESULT";
+	private static final String FAIL = "FAIL";
+	private static final String HUMAN = "HUMAN";
+	private static final String ATTACHMENT = "ATTACHMENT";
+	private static final String TIMING = "TIMING";
+	private static final String SKIP = "SKIP";
+	private static final String COUNT = "COUNT";
+	private static final String END = "END";
+	
+	private static final String SEPARATOR = "\t";
+	
+	private static final String PREVIOUS_SUFFIX = ".previous";
+	
+	private Path file;
+	
+	private BufferedWriter writer;
+	
+	private boolean releaseCompleted = true;
+	
+	/**
+	 * Creates a new journal in given file. An existing file is kept as the journal of the previous run,
+	 * see {@link #getPreviousFile()}, replacing the one kept before.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public ResultsJournal(Path file) throws IOException {
+		this.file = file.toAbsolutePath();
+		if (this.file.getParent() != null) {
+			Files.createDirectories(this.file.getParent());
+		}
+		if (Files.exists(this.file)) {
+			Files.move(this.file, getPreviousFile(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8);
+	}
+	
+	public Path getFile() {
+		return file;
+	}
+	
+	/**
+	 * Returns the file that holds the journal of the previous run, it may not exist.
+	 * @return
+	 */
+	public Path getPreviousFile() {
+		return file.resolveSibling(file.getFileName() + PREVIOUS_SUFFIX);
+	}
+	
+	public boolean isReleaseCompleted() {
+		return releaseCompleted;
+	}
+	
+	/**
+	 * When true (default), TestCases are released from memory after they are finished and journaled.
+	 * 
+	 * @param releaseCompleted
+	 * @return
+	 */
+	public ResultsJournal releaseCompleted(boolean releaseCompleted) {
+		this.releaseCompleted = releaseCompleted;
+		return this;
+	}
+	
+	public void caseStarted(TestCase testCase) {
+		write(CASE, testCase.getId(), String.valueOf(testCase.getStartTime()));
+	}
+	
+	public void step(TestCase testCase) {
+		write(STEP, testCase.getId());
+	}
+	
+	public void action(TestCase testCase, String description) {
+		write(ACTION, testCase.getId(), description);
+	}
+	
+	public void result(TestCase testCase, String description) {
+		write(RESULT, testCase.getId(), description);
+	}
+	
+	public void fail(TestCase testCase) {
+		write(FAIL, testCase.getId());
+	}
+	
+	public void executedByHuman(TestCase testCase) {
+		write(HUMAN, testCase.getId());
+	}
+	
+	public void attachment(TestCase testCase, Attachment attachment) {
+		if (attachment.getType().isSnapshot()) {
+			Path path = ((SnapshotAttachment) attachment).getFileName().toAbsolutePath();
+			//Attachments next to the journal are stored relatively, so the journal can be moved along with them.
+			Path base = file.getParent();
+			if (base != null && path.startsWith(base)) {
+				path = base.relativize(path);
+			}
+			write(ATTACHMENT, testCase.getId(), attachment.getType().name(), attachment.getName(), path.toString());
+		}
+	}
+	
+	public void skip(TestCase testCase) {
+		write(SKIP, testCase.getId());
+	}
+	
+	public void timing(TestCase testCase, Timing timing) {
+		write(TIMING, testCase.getId(), timing.getCategory().name(), timing.getName(), String.valueOf(timing.getNanos()));
+	}
+	
+	public void count(TestCase testCase, String name, long amount) {
+		write(COUNT, testCase.getId(), name, String.valueOf(amount));
+	}
+	
+	public void caseFinished(TestCase testCase) {
+		write(END, testCase.getId(), String.valueOf(testCase.getFinishTime()));
+	}
+	
+	/**
+	 * Writes a complete TestCase, used for TestCases that were not executed through a journaled TestContext.
+	 * 
+	 * @param testCase
+	 */
+	public void record(TestCase testCase) {
+		caseStarted(testCase);
+		for (TestStep step : testCase.getSteps()) {
+			step(testCase);
+			for (String action : step.getActions()) {
+				action(testCase, action);
+			}
+			for (String result : step.getResults()) {
+				result(testCase, result);
+			}
+			for (Attachment attachment : step.getAttachments()) {
+				attachment(testCase, attachment);
+			}
+			for (Timing timing : step.getTimings()) {
+				timing(testCase, timing);
+			}
+			step.getCounters().forEach((name, count) -> count(testCase, name, count));
+			if (step.isExecutedByHuman()) {
+				executedByHuman(testCase);
+			}
+			if (step.isFailed()) {
+				fail(testCase);
+			}
+		}
+		if (testCase.isSkipped()) {
+			skip(testCase);
+		}
+		if (testCase.getFinishTime() >= 0) {
+			caseFinished(testCase);
+		}
+	}
+	
+	/**
+	 * Appends a single event and flushes it, so it is not lost when the JVM dies.
+	 */
+	private synchronized void write(String event, String id, String ... fields) {
+		if (writer == null) {
+			logger.warning(format("Journal %s is closed, event %s of %s is lost.", file, event, id));
+			return;
+		}
+		
+		StringBuilder line = new StringBuilder();
+		line.append(System.currentTimeMillis()).append(SEPARATOR).append(event).append(SEPARATOR).append(escape(id));
+		for (String field : fields) {
+			line.append(SEPARATOR).append(escape(field));
+		}
+		
+		try {
+			writer.write(line.toString());
+			writer.newLine();
+			writer.flush();
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, format("Cannot write to journal %s", file), e);
+		}
+	}
+	
+	@Override
+	public synchronized void close() {
+		if (writer != null) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				logger.log(Level.SEVERE, format("Cannot close journal %s", file), e);
+			}
+			writer = null;
+		}
+	}
+	
+	/**
+	 * Rebuilds TestCases from a journal. A TestCase that has not finished, e.g. because the JVM crashed,
+	 * is stopped at the time of its last event and failed.
+	 * 
+	 * @param file the journal
+	 * @param properties set on the returned context, needed by report generators
+	 * @return a new TestContext holding all TestCases of the journal
+	 * @throws IOException
+	 */
+	public static TestContext replay(Path file, TestProperties properties) throws IOException {
+		
+		TestContext context = new TestContext();
+		context.setProperties(properties);
+		for (TestCase testCase : read(file).values()) {
+			context.addTestCase(testCase);
+		}
+		return context;
+	}
+	
+	/**
+	 * Reads TestCases from a journal, see {@link #replay(Path, TestProperties)}.
+	 * 
+	 * @param file
+	 * @return TestCases by id in the order they were started
+	 * @throws IOException
+	 */
+	public static Map<String, TestCase> read(Path file) throws IOException {
+		
+		Path base = file.toAbsolutePath().getParent();
+		Map<String, TestCase> testCases = new LinkedHashMap<String, TestCase>();
+		Map<String, Long> lastEventTimes = new LinkedHashMap<String, Long>();
+		
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				try {
+					apply(split(line), base, testCases, lastEventTimes);
+				} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+					//Last line may be incomplete when the JVM died while writing it.
+					logger.warning(format("Skipping malformed journal line: %s", line));
+				}
+			}
+		}
+		
+		for (TestCase testCase : testCases.values()) {
+			if (testCase.getFinishTime() < 0) {
+				testCase.addResult("TestCase did not finish, the run was interrupted.");
+				testCase.fail();
+				testCase.stop(lastEventTimes.get(testCase.getId()));
+			}
+		}
+		return testCases;
+	}
+	
+	/**
+	 * Applies a single journal event to TestCases being rebuilt.
+	 */
+	private static void apply(List<String> fields, Path base, Map<String, TestCase> testCases, Map<String, Long> lastEventTimes) {
+		
+		long time = Long.parseLong(fields.get(0));
+		String event = fields.get(1);
+		String id = fields.get(2);
+		
+		TestCase testCase = testCases.get(id);
+		if (testCase == null) {
+			long startTime = CASE.equals(event) ? Long.parseLong(fields.get(3)) : time;
+			testCase = new TestCase(id, startTime);
+			testCases.put(id, testCase);
+		}
+		lastEventTimes.put(id, time);
+		
+		switch (event) {
+			case STEP:
+				testCase.addStep();
+				break;
+			case ACTION:
+				testCase.addAction(fields.get(3));
+				break;
+			case RESULT:
+				testCase.addResult(fields.get(3));
+				break;
+			case FAIL:
+				testCase.fail();
+				break;
+			case HUMAN:
+				testCase.executedByHuman();
+				break;
+			case ATTACHMENT:
+				Path path = Paths.get(fields.get(5));
+				testCase.addAttachment(new SnapshotAttachment(fields.get(4), base != null ? base.resolve(path) : path));
+				break;
+			case TIMING:
+				testCase.addTiming(new Timing(Timing.Category.valueOf(fields.get(3)), fields.get(4), Long.parseLong(fields.get(5))));
+				break;
+			case SKIP:
+				testCase.skip();
+				break;
+			case COUNT:
+				testCase.increment(fields.get(3), Long.parseLong(fields.get(4)));
+				break;
+			case END:
+				testCase.stop(Long.parseLong(fields.get(3)));
+				break;
+			default:
+				break;
+		}
+	}
+	
+	private static String escape(String text) {
+		if (text == null) {
+			return "";
+		}
+		StringBuilder escaped = new StringBuilder(text.length());
+		for (char c : text.toCharArray()) {
+			switch (c) {
+				case '\\': escaped.append("\\\\"); break;
+				case '\t': escaped.append("\\t"); break;
+				case '\n': escaped.append("\\n"); break;
+				case '\r': escaped.append("\\r"); break;
+				default: escaped.append(c);
+			}
+		}
+		return escaped.toString();
+	}
+	
+	private static List<String> split(String line) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '\t') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if (c == '\\' && i + 1 < line.length()) {
+				char next = line.charAt(++i);
+				field.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+}
@@ -0,0 +1,123 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.reports;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.synapticpath.naica.Shard;
+import com.synapticpath.naica.TestCase;
+import com.synapticpath.naica.TestContext;
+import com.synapticpath.naica.TestProperties;
+import com.synapticpath.naica.journal.ResultsJournal;
+
+/**
+ * Merges results of a suite that was split into shards, see {@link Shard}, into a single report.
+ * Every shard writes its own {@link ResultsJournal}, the journals are read in given order and all their TestCases
+ * are put into one TestContext, which is then passed to report generators. The overall outcome is computed over
+ * all shards, snapshots are copied from where the shards left them.
+ * 
+ * Run from command line with the report directory followed by journal files:
+ * 
+ * <pre>
+ * java -cp naica.jar com.synapticpath.naica.reports.MergedReport report shard1/journal.log shard2/journal.log
+ * </pre>
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class MergedReport {
+	
+	private static final Logger logger = Logger.getLogger(MergedReport.class.getName());
+	
+	/**
+	 * Reads given journals into one TestContext, when a TestCase appears in more than one journal
+	 * the first one is kept.
+	 * 
+	 * @param properties set on the returned context
+	 * @param journals
+	 * @return
+	 * @throws IOException
+	 */
+	public static TestContext merge(TestProperties properties, Path ... journals) throws IOException {
+		TestContext context = new TestContext();
+		context.setProperties(properties);
+		
+		for (Path journal : journals) {
+			Map<String, TestCase> testCases = ResultsJournal.read(journal);
+			for (TestCase testCase : testCases.values()) {
+				if (context.getTestCase(testCase.getId()) != null) {
+					logger.warning(format("TestCase %s of %s was already merged from another journal, ignoring it.", testCase.getId(), journal));
+				}
+				context.addTestCase(testCase);
+			}
+			logger.info(format("Merged %s TestCases from %s.", testCases.size(), journal));
+		}
+		return context;
+	}
+	
+	/**
+	 * Merges journals and generates reports of the merged results.
+	 * 
+	 * @param properties
+	 * @param reports
+	 * @param journals
+	 * @return the merged context
+	 * @throws IOException
+	 */
+	public static TestContext generate(TestProperties properties, ReportGenerator [] reports, Path ... journals) throws IOException {
+		TestContext context = merge(properties, journals);
+		for (ReportGenerator report : reports) {
+			report.generate(context);
+		}
+		return context;
+	}
+	
+	public static void main(String [] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: MergedReport <report directory> <journal> [<journal> ...]");
+			System.exit(2);
+		}
+		
+		String reportDirectory = args[0];
+		TestProperties properties = new TestProperties() {
+
+			@Override
+			public String getAttachmentDirectory() {
+				return reportDirectory;
+			}
+
+			@Override
+			public String getReportDirectory() {
+				return reportDirectory;
+			}
+		};
+		
+		Path [] journals = new Path[args.length - 1];
+		for (int i = 1; i < args.length; i++) {
+			journals[i - 1] = Paths.get(args[i]);
+		}
+		
+		TestContext context = generate(properties, new ReportGenerator [] {new HtmlFileSystemReport()}, journals);
+		logger.info(format("Merged %s TestCases, tests were %s.", context.getTestCases().size(), context.getOutcome()));
+		System.exit(context.isFailed() ? 1 : 0);
+	}
+}
@@ -0,0 +1,158 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import static java.lang.String.format;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * State of a browser captured after a sequence of Ops, such as a login: cookies, local and session storage
+ * of the current page and its url. Restoring it into another driver makes that driver continue from the same
+ * state without repeating the sequence, see {@link SeleniumCheckpointOp}.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public final class Checkpoint {
+	
+	private static final String CAPTURE_SCRIPT = 
+			  "function naicaDumpStorage(storage) {"
+			+ "  var items = {};"
+			+ "  for (var i = 0; i < storage.length; i++) { var key = storage.key(i); items[key] = storage.getItem(key); }"
+			+ "  return items;"
+			+ "}"
+			+ "return [naicaDumpStorage(window.localStorage), naicaDumpStorage(window.sessionStorage)];";
+	
+	private static final String RESTORE_SCRIPT = 
+			  "function naicaFillStorage(storage, items) {"
+			+ "  storage.clear();"
+			+ "  for (var key in items) { storage.setItem(key, items[key]); }"
+			+ "}"
+			+ "naicaFillStorage(window.localStorage, arguments[0]);"
+			+ "naicaFillStorage(window.sessionStorage, arguments[1]);"
+			+ "return true;";
+	
+	private final String url;
+	
+	private final Set<Cookie> cookies;
+	
+	private final Map<String, String> localStorage;
+	
+	private final Map<String, String> sessionStorage;
+	
+	private final long capturedAt = System.nanoTime();
+	
+	private Checkpoint(String url, Set<Cookie> cookies, Map<String, String> localStorage, Map<String, String> sessionStorage) {
+		this.url = url;
+		this.cookies = Collections.unmodifiableSet(cookies);
+		this.localStorage = Collections.unmodifiableMap(localStorage);
+		this.sessionStorage = Collections.unmodifiableMap(sessionStorage);
+	}
+	
+	/**
+	 * Captures state of given driver. Storage is captured only when the driver can execute scripts.
+	 * 
+	 * @param driver
+	 * @return
+	 */
+	public static Checkpoint capture(WebDriver driver) {
+		Map<String, String> localStorage = new LinkedHashMap<String, String>();
+		Map<String, String> sessionStorage = new LinkedHashMap<String, String>();
+		if (driver instanceof JavascriptExecutor) {
+			List<?> storages = (List<?>) ((JavascriptExecutor) driver).executeScript(CAPTURE_SCRIPT);
+			copy(storages.get(0), localStorage);
+			copy(storages.get(1), sessionStorage);
+		}
+		return new Checkpoint(driver.getCurrentUrl(), new LinkedHashSet<Cookie>(driver.manage().getCookies()), 
+				localStorage, sessionStorage);
+	}
+	
+	private static void copy(Object items, Map<String, String> storage) {
+		for (Map.Entry<?, ?> item : ((Map<?, ?>) items).entrySet()) {
+			storage.put(String.valueOf(item.getKey()), String.valueOf(item.getValue()));
+		}
+	}
+	
+	/**
+	 * Restores this state into given driver. The url is opened first as cookies and storage can only be set
+	 * for the current page, then it is loaded again so that the page starts with the restored state.
+	 * 
+	 * @param driver
+	 * @throws WebDriverException when the state cannot be set or the page does not stay on the url,
+	 * 	typically because the restored session is no longer valid and the page redirects to a login
+	 */
+	public void restore(WebDriver driver) {
+		ElementCache.of(driver).invalidate();
+		driver.get(url);
+		
+		driver.manage().deleteAllCookies();
+		for (Cookie cookie : cookies) {
+			driver.manage().addCookie(cookie);
+		}
+		if (driver instanceof JavascriptExecutor) {
+			((JavascriptExecutor) driver).executeScript(RESTORE_SCRIPT, localStorage, sessionStorage);
+		}
+		
+		ElementCache.of(driver).invalidate();
+		driver.get(url);
+		
+		String current = driver.getCurrentUrl();
+		if (!url.equals(current)) {
+			throw new WebDriverException(format("Restored page %s went to %s.", url, current));
+		}
+	}
+	
+	public String getUrl() {
+		return url;
+	}
+	
+	public Set<Cookie> getCookies() {
+		return cookies;
+	}
+	
+	public Map<String, String> getLocalStorage() {
+		return localStorage;
+	}
+	
+	public Map<String, String> getSessionStorage() {
+		return sessionStorage;
+	}
+	
+	/**
+	 * Value of System.nanoTime() when this checkpoint was captured.
+	 * @return
+	 */
+	public long getCapturedAt() {
+		return capturedAt;
+	}
+	
+	@Override
+	public String toString() {
+		return format("checkpoint of %s with %d cookies", url, cookies.size());
+	}
+
+}
@@ -0,0 +1,89 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds {@link Checkpoint}s by name for the duration of a suite run. A checkpoint expires after a while, as the
+ * session it captured does too, an expired checkpoint is captured again by the next {@link SeleniumCheckpointOp}.
+ * 
+ * Every SeleniumTestContext has a store, parallel workers share the store of the context they were created from,
+ * see {@link SeleniumTestContext#setCheckpointStore(CheckpointStore)}.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class CheckpointStore {
+	
+	public static final long DEFAULT_EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	
+	private final Map<String, Checkpoint> checkpoints = new ConcurrentHashMap<String, Checkpoint>();
+	
+	private final long expiryNanos;
+	
+	public CheckpointStore() {
+		this(DEFAULT_EXPIRY_MILLIS);
+	}
+	
+	/**
+	 * @param expiryMillis how long a checkpoint can be restored after it was captured
+	 */
+	public CheckpointStore(long expiryMillis) {
+		if (expiryMillis <= 0) {
+			throw new IllegalArgumentException("Expiry has to be positive.");
+		}
+		this.expiryNanos = TimeUnit.MILLISECONDS.toNanos(expiryMillis);
+	}
+	
+	public void put(String name, Checkpoint checkpoint) {
+		checkpoints.put(name, checkpoint);
+	}
+	
+	/**
+	 * Returns checkpoint of given name, null when there is none or it has expired.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public Checkpoint get(String name) {
+		Checkpoint checkpoint = checkpoints.get(name);
+		if (checkpoint != null && System.nanoTime() - checkpoint.getCapturedAt() >= expiryNanos) {
+			checkpoints.remove(name, checkpoint);
+			return null;
+		}
+		return checkpoint;
+	}
+	
+	/**
+	 * Removes checkpoint of given name, e.g. when it could not be restored.
+	 * @param name
+	 */
+	public void invalidate(String name) {
+		checkpoints.remove(name);
+	}
+	
+	public void clear() {
+		checkpoints.clear();
+	}
+	
+	public int size() {
+		return checkpoints.size();
+	}
+
+}
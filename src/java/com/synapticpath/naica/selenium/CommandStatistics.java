@@ -0,0 +1,151 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import static java.lang.String.format;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count, total time and latency histogram of WebDriver commands, per command and per Op that issued them.
+ * Collected by {@link InstrumentedWebDriver}, safe to use from multiple threads.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class CommandStatistics {
+	
+	/**
+	 * Upper limits of latency histogram buckets in milliseconds, the last bucket holds commands that took longer.
+	 */
+	public static final long [] BUCKET_LIMITS_MILLIS = {1, 5, 10, 50, 100, 500, 1000};
+	
+	/**
+	 * Statistics of a single command.
+	 */
+	public static class CommandStats {
+		
+		private final LongAdder count = new LongAdder();
+		
+		private final LongAdder totalNanos = new LongAdder();
+		
+		private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_LIMITS_MILLIS.length + 1);
+		
+		void record(long nanos) {
+			count.increment();
+			totalNanos.add(nanos);
+			long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+			int bucket = 0;
+			while (bucket < BUCKET_LIMITS_MILLIS.length && millis >= BUCKET_LIMITS_MILLIS[bucket]) {
+				bucket++;
+			}
+			histogram.incrementAndGet(bucket);
+		}
+		
+		public long getCount() {
+			return count.sum();
+		}
+		
+		public long getTotalNanos() {
+			return totalNanos.sum();
+		}
+		
+		/**
+		 * Number of commands per latency bucket, see {@link CommandStatistics#BUCKET_LIMITS_MILLIS}.
+		 * @return
+		 */
+		public long [] getHistogram() {
+			long [] counts = new long [histogram.length()];
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = histogram.get(i);
+			}
+			return counts;
+		}
+		
+		@Override
+		public String toString() {
+			StringBuilder text = new StringBuilder(format("%s commands, %.1f ms", getCount(), getTotalNanos() / 1e6));
+			long [] counts = getHistogram();
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > 0) {
+					text.append(i < BUCKET_LIMITS_MILLIS.length ? format(", <%s ms: %s", BUCKET_LIMITS_MILLIS[i], counts[i]) 
+							: format(", >=%s ms: %s", BUCKET_LIMITS_MILLIS[i - 1], counts[i]));
+				}
+			}
+			return text.toString();
+		}
+	}
+	
+	private final ConcurrentMap<String, CommandStats> commands = new ConcurrentHashMap<String, CommandStats>();
+	
+	private final ConcurrentMap<String, ConcurrentMap<String, CommandStats>> ops = new ConcurrentHashMap<String, ConcurrentMap<String, CommandStats>>();
+	
+	/**
+	 * Records a command.
+	 * 
+	 * @param op name of the Op that issued the command, null when issued outside of an Op
+	 * @param command
+	 * @param nanos time the command took
+	 */
+	public void record(String op, String command, long nanos) {
+		commands.computeIfAbsent(command, c -> new CommandStats()).record(nanos);
+		if (op != null) {
+			ops.computeIfAbsent(op, o -> new ConcurrentHashMap<String, CommandStats>())
+				.computeIfAbsent(command, c -> new CommandStats()).record(nanos);
+		}
+	}
+	
+	/**
+	 * Statistics by command, sorted by command name.
+	 * @return
+	 */
+	public Map<String, CommandStats> getCommands() {
+		return Collections.unmodifiableMap(new TreeMap<String, CommandStats>(commands));
+	}
+	
+	/**
+	 * Names of Ops that issued commands.
+	 * @return
+	 */
+	public Set<String> getOps() {
+		return Collections.unmodifiableSet(ops.keySet());
+	}
+	
+	/**
+	 * Statistics by command of commands issued by given Op.
+	 * @param op
+	 * @return
+	 */
+	public Map<String, CommandStats> getCommands(String op) {
+		Map<String, CommandStats> opCommands = ops.get(op);
+		return opCommands != null ? Collections.unmodifiableMap(new TreeMap<String, CommandStats>(opCommands)) : Collections.emptyMap();
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		getCommands().forEach((command, stats) -> text.append(command).append(": ").append(stats).append('\n'));
+		return text.toString();
+	}
+}
@@ -0,0 +1,131 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Event driven waits. Instead of polling the page through the driver, a MutationObserver is installed
+ * in the page by an asynchronous script that completes as soon as the awaited state is reached. Waiting
+ * thus costs a single driver round trip and ends without polling latency.
+ * 
+ * The observer does not see changes made by style sheets alone, so the page side of the wait also
+ * re-checks the state every {@link #RECHECK_INTERVAL_MILLIS}, this does not involve the driver.
+ * 
+ * Methods of this class throw {@link org.openqa.selenium.WebDriverException} when the script cannot
+ * be executed, callers are expected to fall back to polling, see {@link SeleniumUtils}.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class DomObserverWait {
+	
+	public static final long RECHECK_INTERVAL_MILLIS = 250;
+	
+	//Extra time given to the driver on top of the wait itself before it gives up on the script.
+	static final long SCRIPT_TIMEOUT_MARGIN_MILLIS = 5000;
+	
+	private static final String WAIT_SCRIPT = SeleniumScripts.FUNCTIONS
+			+ "var css = arguments[0], xpath = arguments[1], visible = arguments[2], text = arguments[3],"
+			+ "    timeout = arguments[4], gone = arguments[5], done = arguments[arguments.length - 1];"
+			+ "function check() {"
+			+ "  var e = naicaLocate(css, xpath);"
+			+ "  if (gone) { return e ? null : true; }"
+			+ "  if (!e) { return null; }"
+			+ "  if (text !== null && naicaText(e).indexOf(text) < 0) { return null; }"
+			+ "  if (visible !== null && naicaVisible(e) !== visible) { return null; }"
+			+ "  return e;"
+			+ "}"
+			+ "var result = check();"
+			+ "if (result !== null) { done(result); return; }"
+			+ "var finished = false, observer, interval, timer;"
+			+ "function finish(value) {"
+			+ "  if (finished) { return; }"
+			+ "  finished = true; observer.disconnect(); clearInterval(interval); clearTimeout(timer);"
+			+ "  done(value);"
+			+ "}"
+			+ "function test() { var r = check(); if (r !== null) { finish(r); } }"
+			+ "observer = new MutationObserver(test);"
+			+ "observer.observe(document.documentElement || document, {childList: true, subtree: true, attributes: true, characterData: true});"
+			+ "interval = setInterval(test, " + RECHECK_INTERVAL_MILLIS + ");"
+			+ "timer = setTimeout(function() { finish(gone ? false : null); }, timeout);";
+	
+	//Script timeouts already set on drivers, so that they are only changed when a longer one is needed.
+	private static final Map<WebDriver, Long> scriptTimeouts = Collections.synchronizedMap(new WeakHashMap<WebDriver, Long>());
+	
+	private DomObserverWait() {
+	}
+	
+	/**
+	 * Waits until an element matching given criteria appears in the page.
+	 * 
+	 * @param driver has to implement {@link JavascriptExecutor}
+	 * @param selector primary criteria to find an element
+	 * @param visible when not null, the element must also be visible when true, or invisible when false
+	 * @param withText when not null, text of the element must contain it
+	 * @param timeoutMillis maximum time to wait
+	 * @return the element, null when not found in time
+	 */
+	public static WebElement waitForElement(WebDriver driver, SeleniumSelector selector, Boolean visible, String withText, long timeoutMillis) {
+		
+		Object result = execute(driver, selector, visible, withText, timeoutMillis, false);
+		return result instanceof WebElement ? (WebElement) result : null;
+	}
+	
+	/**
+	 * Waits until no element matches given selector.
+	 * 
+	 * @param driver has to implement {@link JavascriptExecutor}
+	 * @param selector
+	 * @param timeoutMillis maximum time to wait
+	 * @return true when the element is gone, false when timeout was reached first
+	 */
+	public static boolean waitUntilElementGone(WebDriver driver, SeleniumSelector selector, long timeoutMillis) {
+		
+		return Boolean.TRUE.equals(execute(driver, selector, null, null, timeoutMillis, true));
+	}
+	
+	private static Object execute(WebDriver driver, SeleniumSelector selector, Boolean visible, String withText, long timeoutMillis, boolean gone) {
+		
+		ensureScriptTimeout(driver, timeoutMillis + SCRIPT_TIMEOUT_MARGIN_MILLIS);
+		try {
+			return ((JavascriptExecutor) driver).executeAsyncScript(WAIT_SCRIPT, selector.getCss(), selector.getXpath(), 
+					visible, withText, timeoutMillis, gone);
+		} catch (TimeoutException e) {
+			//Page did not answer within the margin, e.g. it is navigating away.
+			return null;
+		}
+	}
+	
+	/**
+	 * Sets the script timeout of given driver, unless a longer one is set already.
+	 */
+	static void ensureScriptTimeout(WebDriver driver, long timeoutMillis) {
+		Long current = scriptTimeouts.get(driver);
+		if (current == null || current < timeoutMillis) {
+			driver.manage().timeouts().setScriptTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+			scriptTimeouts.put(driver, timeoutMillis);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.synapticpath.naica.TestContext;
+
+/**
+ * Caches elements looked up through a driver by {@link SeleniumSelector}, so that an action and the conditions
+ * that follow it do not each pay a round trip to look up the same element again.
+ * 
+ * Cached elements belong to a navigation epoch, which ends when the page is loaded or the window is switched
+ * through naica, see {@link #invalidate()}. Navigation the cache does not see, such as a click on a link, makes
+ * cached elements stale, an element that throws {@link StaleElementReferenceException} is evicted and looked up again.
+ * 
+ * Lookups served from the cache and from the driver are counted, see {@link #HIT_COUNTER} and {@link #MISS_COUNTER}.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class ElementCache {
+	
+	/**
+	 * Counter of lookups served from the cache, see {@link TestContext#increment(String)}.
+	 */
+	public static final String HIT_COUNTER = "element cache hits";
+	
+	/**
+	 * Counter of lookups that went to the driver.
+	 */
+	public static final String MISS_COUNTER = "element cache misses";
+	
+	private static final Map<WebDriver, ElementCache> caches = Collections.synchronizedMap(new WeakHashMap<WebDriver, ElementCache>());
+	
+	private final Map<SeleniumSelector, WebElement> elements = new HashMap<SeleniumSelector, WebElement>();
+	
+	private long epoch;
+	
+	private ElementCache() {
+	}
+	
+	/**
+	 * Returns the cache of given driver.
+	 * @param driver
+	 * @return
+	 */
+	public static ElementCache of(WebDriver driver) {
+		return caches.computeIfAbsent(driver, d -> new ElementCache());
+	}
+	
+	/**
+	 * Returns the element cached for given selector in current epoch, counting a hit, or null when there is none.
+	 * @param selector
+	 * @return
+	 */
+	public synchronized WebElement get(SeleniumSelector selector) {
+		WebElement element = elements.get(selector);
+		if (element != null) {
+			TestContext.getInstance().increment(HIT_COUNTER);
+		}
+		return element;
+	}
+	
+	/**
+	 * Caches an element that was looked up through the driver, counting a miss.
+	 * @param selector
+	 * @param element
+	 */
+	public synchronized void put(SeleniumSelector selector, WebElement element) {
+		TestContext.getInstance().increment(MISS_COUNTER);
+		elements.put(selector, element);
+	}
+	
+	/**
+	 * Removes the element cached for given selector, call this when it is stale or gone.
+	 * @param selector
+	 */
+	public synchronized void evict(SeleniumSelector selector) {
+		elements.remove(selector);
+	}
+	
+	/**
+	 * Ends current navigation epoch, all cached elements are dropped.
+	 */
+	public synchronized void invalidate() {
+		elements.clear();
+		epoch++;
+	}
+	
+	/**
+	 * Number of navigation epochs that ended.
+	 * @return
+	 */
+	public synchronized long getEpoch() {
+		return epoch;
+	}
+	
+	/**
+	 * Number of elements cached in current epoch.
+	 * @return
+	 */
+	public synchronized int size() {
+		return elements.size();
+	}
+}
@@ -0,0 +1,294 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
+import org.openqa.selenium.internal.WrapsElement;
+
+import com.synapticpath.naica.TestContext;
+
+/**
+ * Instruments a WebDriver, every command issued through it or through elements and other objects obtained from it
+ * is timed and recorded to {@link CommandStatistics}. Commands are named by method, e.g. findElement, click or getText,
+ * commands of navigation, options and the like are prefixed by their interface, e.g. Navigation.back.
+ * 
+ * Install it with {@link SeleniumTestContext#setDriver(WebDriver)}, or in a driver factory:
+ * 
+ * <pre>
+ * context.setDriver(InstrumentedWebDriver.wrap(new FirefoxDriver()));
+ * </pre>
+ * 
+ * Commands are counted per step of the TestCase, see {@link #COMMAND_COUNTER_PREFIX}, and {@link SeleniumOp} records
+ * time spent per command as timings of its step, see {@link com.synapticpath.naica.Timing.Category#COMMAND}.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class InstrumentedWebDriver {
+	
+	/**
+	 * Prefix of step counters of commands, followed by the command name.
+	 */
+	public static final String COMMAND_COUNTER_PREFIX = "command ";
+	
+	//Methods that return an object to issue commands through, see isAccessor(Method)
+	private static final Set<String> ACCESSORS = new HashSet<String>(Arrays.asList(
+			"manage", "switchTo", "navigate", "window", "timeouts", "logs", "ime"));
+	
+	private final WebDriver driver;
+	
+	private final WebDriver proxy;
+	
+	private final CommandStatistics statistics = new CommandStatistics();
+	
+	//Ops being executed by a thread, innermost first, with time spent per command.
+	private final ThreadLocal<Deque<OpCommands>> ops = ThreadLocal.withInitial(ArrayDeque::new);
+	
+	private static class OpCommands {
+		
+		private final String name;
+		
+		private final Map<String, Long> nanos = new LinkedHashMap<String, Long>();
+		
+		private OpCommands(String name) {
+			this.name = name;
+		}
+	}
+	
+	private InstrumentedWebDriver(WebDriver driver) {
+		this.driver = driver;
+		this.proxy = (WebDriver) proxy(driver, "");
+	}
+	
+	/**
+	 * Returns an instrumented driver that issues commands through given driver. A driver that already is instrumented
+	 * is returned as it is.
+	 * 
+	 * @param driver
+	 * @return
+	 */
+	public static WebDriver wrap(WebDriver driver) {
+		if (of(driver) != null) {
+			return driver;
+		}
+		return new InstrumentedWebDriver(driver).proxy;
+	}
+	
+	/**
+	 * Returns the instrumentation of given driver, or null when it is not instrumented.
+	 * 
+	 * @param driver
+	 * @return
+	 */
+	public static InstrumentedWebDriver of(WebDriver driver) {
+		if (driver != null && Proxy.isProxyClass(driver.getClass())) {
+			InvocationHandler handler = Proxy.getInvocationHandler(driver);
+			if (handler instanceof Handler) {
+				return ((Handler) handler).owner();
+			}
+		}
+		return null;
+	}
+	
+	public CommandStatistics getStatistics() {
+		return statistics;
+	}
+	
+	/**
+	 * Returns the driver that is instrumented.
+	 * @return
+	 */
+	public WebDriver getWrappedDriver() {
+		return driver;
+	}
+	
+	/**
+	 * Attributes commands issued by the calling thread to given Op until {@link #endOp()}, Ops may be nested.
+	 * @param name
+	 */
+	public void beginOp(String name) {
+		ops.get().push(new OpCommands(name));
+	}
+	
+	/**
+	 * Ends the innermost Op started by the calling thread.
+	 * @return time in nanoseconds spent by the Op per command
+	 */
+	public Map<String, Long> endOp() {
+		OpCommands op = ops.get().poll();
+		return op != null ? op.nanos : new LinkedHashMap<String, Long>();
+	}
+	
+	private void record(String command, long nanos) {
+		OpCommands op = ops.get().peek();
+		statistics.record(op != null ? op.name : null, command, nanos);
+		if (op != null) {
+			op.nanos.merge(command, nanos, Long::sum);
+		}
+		TestContext.getInstance().increment(COMMAND_COUNTER_PREFIX + command);
+	}
+	
+	private Object proxy(Object target, String prefix) {
+		Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+		collectInterfaces(target.getClass(), interfaces);
+		if (target instanceof WebElement) {
+			interfaces.add(WrapsElement.class);
+		} else if (target instanceof WebDriver) {
+			interfaces.add(WrapsDriver.class);
+		}
+		return Proxy.newProxyInstance(InstrumentedWebDriver.class.getClassLoader(), interfaces.toArray(new Class<?>[interfaces.size()]), 
+				new Handler(target, prefix));
+	}
+	
+	private static void collectInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+		for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+			for (Class<?> implemented : current.getInterfaces()) {
+				if (Modifier.isPublic(implemented.getModifiers()) && interfaces.add(implemented)) {
+					collectInterfaces(implemented, interfaces);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Wraps elements and other Selenium objects returned by commands, so that commands issued through them are recorded too.
+	 */
+	private Object wrapResult(Object result, Method method) {
+		if (result == null) {
+			return null;
+		}
+		if (result == driver) {
+			return proxy;
+		}
+		if (result instanceof WebElement) {
+			return proxy(result, "");
+		}
+		if (result instanceof List) {
+			List<Object> wrapped = new ArrayList<Object>();
+			for (Object item : (List<?>) result) {
+				wrapped.add(item instanceof WebElement ? proxy(item, "") : item);
+			}
+			return wrapped;
+		}
+		Class<?> type = method.getReturnType();
+		if (type.isInterface() && type.getName().startsWith("org.openqa.selenium.")) {
+			return proxy(result, type.getSimpleName() + ".");
+		}
+		return result;
+	}
+	
+	/**
+	 * Methods like manage() or switchTo() only return an object to issue commands through, they are not recorded.
+	 * Other methods returning such objects, e.g. switchTo().alert(), are commands of the driver.
+	 */
+	private static boolean isAccessor(Method method) {
+		return method.getParameterCount() == 0 && ACCESSORS.contains(method.getName());
+	}
+	
+	/**
+	 * Replaces proxies among arguments with objects they wrap, drivers accept only their own elements.
+	 */
+	private static Object unwrap(Object arg) {
+		if (arg != null && Proxy.isProxyClass(arg.getClass()) && Proxy.getInvocationHandler(arg) instanceof Handler) {
+			return ((Handler) Proxy.getInvocationHandler(arg)).target;
+		}
+		if (arg instanceof Object[]) {
+			Object [] array = ((Object[]) arg).clone();
+			for (int i = 0; i < array.length; i++) {
+				array[i] = unwrap(array[i]);
+			}
+			return array;
+		}
+		if (arg instanceof List) {
+			List<Object> list = new ArrayList<Object>();
+			for (Object item : (List<?>) arg) {
+				list.add(unwrap(item));
+			}
+			return list;
+		}
+		return arg;
+	}
+	
+	private class Handler implements InvocationHandler {
+		
+		private final Object target;
+		
+		private final String prefix;
+		
+		private Handler(Object target, String prefix) {
+			this.target = target;
+			this.prefix = prefix;
+		}
+		
+		private InstrumentedWebDriver owner() {
+			return InstrumentedWebDriver.this;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			
+			if (method.getDeclaringClass() == Object.class) {
+				switch (method.getName()) {
+					case "equals":
+						return target.equals(unwrap(args[0]));
+					case "hashCode":
+						return target.hashCode();
+					default:
+						return method.invoke(target, args);
+				}
+			}
+			if (method.getDeclaringClass() == WrapsElement.class && !(target instanceof WrapsElement)
+					|| method.getDeclaringClass() == WrapsDriver.class && !(target instanceof WrapsDriver)) {
+				return target;
+			}
+			
+			Object [] unwrapped = args != null ? (Object[]) unwrap(args) : null;
+			if (isAccessor(method)) {
+				try {
+					return wrapResult(method.invoke(target, unwrapped), method);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+			long start = System.nanoTime();
+			try {
+				return wrapResult(method.invoke(target, unwrapped), method);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			} finally {
+				record(prefix + method.getName(), System.nanoTime() - start);
+			}
+		}
+	}
+}
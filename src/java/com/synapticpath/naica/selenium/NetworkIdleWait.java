@@ -0,0 +1,125 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Waits until the page is done with its background work. A tracker injected into the page counts
+ * fetch and XMLHttpRequest requests in flight and pending timeouts of up to {@link #TIMER_LIMIT_MILLIS},
+ * the page is idle when none of them has been pending for a quiet window. Like {@link DomObserverWait}
+ * the wait happens inside the page, it costs a single driver round trip.
+ * 
+ * The tracker is lost when the page is loaded again, it is then installed by the next wait. Requests the page
+ * started before the tracker was installed are not seen, so install it before actions that start requests,
+ * see {@link SeleniumOp#waitForNetworkIdle(long)}.
+ * 
+ * Methods of this class throw {@link org.openqa.selenium.WebDriverException} when the script cannot be executed.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class NetworkIdleWait {
+	
+	public static final long DEFAULT_QUIET_MILLIS = 500;
+	
+	/**
+	 * Longer timeouts are typically used to poll or to expire something, they do not keep the page busy.
+	 */
+	public static final long TIMER_LIMIT_MILLIS = 1000;
+	
+	private static final long CHECK_INTERVAL_MILLIS = 50;
+	
+	//Installs the tracker once per page, timers of the tracker itself go through the original setTimeout.
+	private static final String TRACKER_SCRIPT = 
+			  "var t = window.__naicaNetwork;"
+			+ "if (!t) {"
+			+ "  t = window.__naicaNetwork = {requests: 0, timers: {}, timerCount: 0, last: Date.now(),"
+			+ "      setTimeout: window.setTimeout, clearTimeout: window.clearTimeout};"
+			+ "  var touch = function() { t.last = Date.now(); };"
+			+ "  var send = XMLHttpRequest.prototype.send;"
+			+ "  XMLHttpRequest.prototype.send = function() {"
+			+ "    var ended = false, end = function() { if (!ended) { ended = true; t.requests--; touch(); } };"
+			+ "    t.requests++; touch();"
+			+ "    this.addEventListener('loadend', end);"
+			+ "    try { return send.apply(this, arguments); } catch (e) { end(); throw e; }"
+			+ "  };"
+			+ "  if (window.fetch) {"
+			+ "    var fetch = window.fetch;"
+			+ "    window.fetch = function() {"
+			+ "      var end = function() { t.requests--; touch(); }, pending;"
+			+ "      t.requests++; touch();"
+			+ "      try { pending = fetch.apply(this, arguments); } catch (e) { end(); throw e; }"
+			+ "      return pending.then(function(r) { end(); return r; }, function(e) { end(); throw e; });"
+			+ "    };"
+			+ "  }"
+			+ "  var untrack = function(id) { if (t.timers[id]) { delete t.timers[id]; t.timerCount--; touch(); } };"
+			+ "  window.setTimeout = function(fn, delay) {"
+			+ "    if (typeof fn !== 'function' || delay > " + TIMER_LIMIT_MILLIS + ") { return t.setTimeout.apply(window, arguments); }"
+			+ "    var args = Array.prototype.slice.call(arguments, 2), id;"
+			+ "    id = t.setTimeout.call(window, function() { untrack(id); fn.apply(window, args); }, delay);"
+			+ "    t.timers[id] = true; t.timerCount++; touch();"
+			+ "    return id;"
+			+ "  };"
+			+ "  window.clearTimeout = function(id) { untrack(id); return t.clearTimeout.call(window, id); };"
+			+ "}";
+	
+	private static final String INSTALL_SCRIPT = TRACKER_SCRIPT + "return true;";
+	
+	private static final String WAIT_SCRIPT = TRACKER_SCRIPT
+			+ "var quiet = arguments[0], timeout = arguments[1], done = arguments[arguments.length - 1], start = Date.now();"
+			+ "function naicaWaitIdle() {"
+			+ "  var now = Date.now();"
+			+ "  if (t.requests <= 0 && t.timerCount <= 0 && now - t.last >= quiet) { done(null); return; }"
+			+ "  if (now - start >= timeout) { done(t.requests + ' requests and ' + t.timerCount + ' timers pending'); return; }"
+			+ "  t.setTimeout.call(window, naicaWaitIdle, " + CHECK_INTERVAL_MILLIS + ");"
+			+ "}"
+			+ "naicaWaitIdle();";
+	
+	private NetworkIdleWait() {
+	}
+	
+	/**
+	 * Installs the tracker into current page, unless it is there already.
+	 * 
+	 * @param driver has to implement {@link JavascriptExecutor}
+	 */
+	public static void install(WebDriver driver) {
+		((JavascriptExecutor) driver).executeScript(INSTALL_SCRIPT);
+	}
+	
+	/**
+	 * Waits until no request or timer has been pending for given quiet window.
+	 * 
+	 * @param driver has to implement {@link JavascriptExecutor}
+	 * @param quietMillis
+	 * @param timeoutMillis maximum time to wait
+	 * @return null when the page is idle, otherwise a description of what is still pending
+	 */
+	public static String waitForIdle(WebDriver driver, long quietMillis, long timeoutMillis) {
+		
+		DomObserverWait.ensureScriptTimeout(driver, timeoutMillis + DomObserverWait.SCRIPT_TIMEOUT_MARGIN_MILLIS);
+		try {
+			Object pending = ((JavascriptExecutor) driver).executeAsyncScript(WAIT_SCRIPT, quietMillis, timeoutMillis);
+			return pending == null ? null : String.valueOf(pending);
+		} catch (TimeoutException e) {
+			//Page did not answer within the margin, e.g. it is navigating away.
+			return "page did not answer";
+		}
+	}
+}
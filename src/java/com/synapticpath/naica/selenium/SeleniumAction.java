@@ -1,143 +1,200 @@
-/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
-
- This program is free software: you can redistribute it and/or modify
-    it under the terms of the GNU General Public License as published by
-    the Free Software Foundation, either version 3 of the License, or
-    (at your option) any later version.
-
-    This program is distributed in the hope that it will be useful,
-    but WITHOUT ANY WARRANTY; without even the implied warranty of
-    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
-    GNU General Public License for more details.
-
-    You should have received a copy of the GNU General Public License
-    along with this program.  If not, see <http://www.gnu.org/licenses/>.
-*/
-package com.synapticpath.naica.selenium;
-
-import static com.synapticpath.naica.selenium.SeleniumUtils.findElementWithTimeout;
-import static java.lang.String.format;
-
-import java.util.function.Function;
-import java.util.logging.Logger;
-
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-
-import com.synapticpath.naica.actions.Action;
-
-/**
- * Implementation of Action interface for Selenium.
- * 
- * @author developer@synapticpath.com
- *
- */
-public class SeleniumAction implements Action {
-
-    private static final Logger logger = Logger.getLogger(SeleniumAction.class.getName());
-    
-    private static Function<SeleniumAction, Boolean> clickFn = (SeleniumAction sa) -> {									
-		WebElement element = findElementWithTimeout(sa.selector, sa.timeout);
-        if (element != null) {
-            logger.info(format("Clicking element %s", sa.selector.toString()));
-            element.click();
-            return true;
-        }
-        logger.warning(format("Failed to locate element %s", sa.selector.toString()));
-        return false;		
-	};
-	
-	private static Function<SeleniumAction, Boolean> urlFn = (SeleniumAction sa) -> {
-							
-		WebDriver driver = SeleniumTestContext.getInstance().getDriver();
-    	
-    	logger.info(format("Performing get on %s", sa.text));
-    	driver.get(sa.text);
-    	
-    	//Use @see Condition to evaluate whether this action succeeded.
-    	return true;        
-	};
-	
-	private static Function<SeleniumAction, Boolean> noActionFn = (SeleniumAction sa) -> true;
-	
-    Function<SeleniumAction, Boolean> toPerform;
-
-    protected SeleniumSelector selector;    
-    
-    protected String text;
-
-    protected int timeout = -1;
-    
-    //and others.
-
-    protected SeleniumAction(Function<SeleniumAction, Boolean> toPerform) {
-    	this.toPerform = toPerform;
-    }
-
-    public boolean perform() {    		
-       return toPerform.apply(this);
-    }
-    
-
-    public SeleniumAction timeout(int timeout) {
-        this.timeout = timeout;
-        return this;
-    }
-    
-
-    /**
-     * Make an instance of Action that performs a browser click.
-     * 
-     * @param selector
-     * @return
-     */
-    public static SeleniumAction click(SeleniumSelector selector) {
-        SeleniumAction action = new SeleniumAction(clickFn);
-        action.selector = selector;
-        return action;
-    }
-
-    /**
-     * Make an instance of Action that does nothing. Use it as filler when an action is
-     * required.
-     *  
-     * @return
-     */
-    public static SeleniumAction noAction() {
-        SeleniumAction action = new SeleniumAction(noActionFn);        
-        return action;
-    }
-       
-    /**
-     * Calls Selenium driver to perform a get request on given url.
-     * @param url
-     * @return
-     */
-    public static SeleniumAction get(String url) {
-        SeleniumAction action = new SeleniumAction(urlFn);
-        action.text = url;
-        return action;
-    }
-    
-    /**
-     * Sends text to a DOM element using underlying driver.
-     * @param selector
-     * @param text
-     * @return
-     */
-    public static SeleniumTextAction text(SeleniumSelector selector, String text) {
-        SeleniumTextAction action = new SeleniumTextAction(selector, text);
-        return action;
-    }
-
-    /**
-     * Clears text in given DOM element.
-     * @param selector
-     * @return
-     */
-    public static SeleniumTextAction clear(SeleniumSelector selector) {
-        SeleniumTextAction action = new SeleniumTextAction(selector, "");
-        return action;
-    }
-    
-}
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import static com.synapticpath.naica.selenium.SeleniumUtils.interact;
+import static java.lang.String.format;
+
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import org.openqa.selenium.WebDriver;
+
+import com.synapticpath.naica.actions.Action;
+import com.synapticpath.naica.selenium.SeleniumUtils.WaitMode;
+
+/**
+ * Implementation of Action interface for Selenium.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class SeleniumAction implements Action {
+
+    private static final Logger logger = Logger.getLogger(SeleniumAction.class.getName());
+    
+    private static Function<SeleniumAction, Boolean> clickFn = (SeleniumAction sa) -> {									
+		boolean clicked = interact(sa.selector, sa.timeout, sa.waitMode, element -> {
+            logger.info(format("Clicking element %s", sa.selector.toString()));
+            element.click();
+        });
+        if (clicked) {
+            return true;
+        }
+        logger.warning(format("Failed to locate element %s", sa.selector.toString()));
+        return false;		
+	};
+	
+	private static Function<SeleniumAction, Boolean> urlFn = (SeleniumAction sa) -> {
+							
+		WebDriver driver = SeleniumTestContext.getInstance().getDriver();
+    	
+    	logger.info(format("Performing get on %s", sa.text));
+    	ElementCache.of(driver).invalidate();
+    	driver.get(sa.text);
+    	
+    	//Use @see Condition to evaluate whether this action succeeded.
+    	return true;        
+	};
+	
+	private static Function<SeleniumAction, Boolean> noActionFn = (SeleniumAction sa) -> true;
+	
+    Function<SeleniumAction, Boolean> toPerform;
+
+    protected SeleniumSelector selector;    
+    
+    protected String text;
+
+    protected int timeout = -1;
+    
+    protected WaitMode waitMode;
+    
+    //Null when it depends on what the action does, see mayOpenWindow()
+    protected Boolean mayOpenWindow;
+    
+    //and others.
+
+    protected SeleniumAction(Function<SeleniumAction, Boolean> toPerform) {
+    	this.toPerform = toPerform;
+    }
+
+    public boolean perform() {    		
+       return toPerform.apply(this);
+    }
+    
+
+    public SeleniumAction timeout(int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+    
+    /**
+     * Sets how this Action waits for the element, overrides {@link SeleniumTestContext#getWaitMode()}.
+     * @param waitMode
+     * @return
+     */
+    public SeleniumAction waitMode(WaitMode waitMode) {
+        this.waitMode = waitMode;
+        return this;
+    }
+    
+
+    /**
+     * Declares whether this action may open a window, such as a click on a link that opens a popup.
+     * By default only clicks may, see {@link WindowTracker}.
+     * 
+     * @param mayOpenWindow
+     * @return
+     */
+    public SeleniumAction mayOpenWindow(boolean mayOpenWindow) {
+        this.mayOpenWindow = mayOpenWindow;
+        return this;
+    }
+    
+    /**
+     * Returns true when this action may open a window.
+     * @return
+     */
+    public boolean mayOpenWindow() {
+        return mayOpenWindow != null ? mayOpenWindow : toPerform == clickFn;
+    }
+
+    @Override
+    public String toString() {
+    	if (toPerform == clickFn) {
+    		return "click " + selector;
+    	} else if (toPerform == urlFn) {
+    		return "get " + text;
+    	} else if (toPerform == noActionFn) {
+    		return "noAction";
+    	}
+    	return getClass().getSimpleName() + (selector != null ? " " + selector : "");
+    }
+
+    /**
+     * Make an instance of Action that performs a browser click.
+     * 
+     * @param selector
+     * @return
+     */
+    public static SeleniumAction click(SeleniumSelector selector) {
+        SeleniumAction action = new SeleniumAction(clickFn);
+        action.selector = selector;
+        return action;
+    }
+
+    /**
+     * Make an instance of Action that does nothing. Use it as filler when an action is
+     * required.
+     *  
+     * @return
+     */
+    public static SeleniumAction noAction() {
+        SeleniumAction action = new SeleniumAction(noActionFn);        
+        return action;
+    }
+       
+    /**
+     * Calls Selenium driver to perform a get request on given url.
+     * @param url
+     * @return
+     */
+    public static SeleniumAction get(String url) {
+        SeleniumAction action = new SeleniumAction(urlFn);
+        action.text = url;
+        return action;
+    }
+    
+    /**
+     * Sends text to a DOM element using underlying driver.
+     * @param selector
+     * @param text
+     * @return
+     */
+    public static SeleniumTextAction text(SeleniumSelector selector, String text) {
+        SeleniumTextAction action = new SeleniumTextAction(selector, text);
+        return action;
+    }
+
+    /**
+     * Clears text in given DOM element.
+     * @param selector
+     * @return
+     */
+    public static SeleniumTextAction clear(SeleniumSelector selector) {
+        SeleniumTextAction action = new SeleniumTextAction(selector, "");
+        return action;
+    }
+    
+    /**
+     * Fills many form fields by a single script execution, add fields to the returned action.
+     * @return
+     */
+    public static SeleniumFormAction form() {
+        return new SeleniumFormAction();
+    }
+    
+}
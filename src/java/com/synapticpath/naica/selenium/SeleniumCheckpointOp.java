@@ -0,0 +1,206 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import static java.lang.String.format;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openqa.selenium.WebDriverException;
+
+import com.synapticpath.naica.TestContext;
+import com.synapticpath.naica.Timing;
+import com.synapticpath.naica.Timing.Category;
+import com.synapticpath.naica.ops.Op;
+
+/**
+ * Skips repeated setup, such as a login, by restoring browser state captured after the setup ran once,
+ * see {@link Checkpoint}. Checkpoints are kept by name in the {@link CheckpointStore} of current context.
+ * 
+ * Typically a TestCase starts with {@link #of(String, Op...)}, which restores the checkpoint when there is one
+ * and otherwise executes the setup Ops and captures the checkpoint. When restoring fails, e.g. because the session
+ * has expired on the server, the checkpoint is dropped and the setup Ops are executed instead.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class SeleniumCheckpointOp implements Op {
+	
+	private static final Logger logger = Logger.getLogger(SeleniumCheckpointOp.class.getName());
+	
+	/**
+	 * Counter of checkpoints restored instead of executing setup, see {@link TestContext#increment(String)}.
+	 */
+	public static final String RESTORED_COUNTER = "checkpoints restored";
+	
+	/**
+	 * Counter of checkpoints captured.
+	 */
+	public static final String CAPTURED_COUNTER = "checkpoints captured";
+	
+	/**
+	 * Counter of checkpoints that could not be restored so setup was executed instead.
+	 */
+	public static final String FALLBACK_COUNTER = "checkpoint fallbacks";
+	
+	private static Function<SeleniumCheckpointOp, Boolean> captureFn = (SeleniumCheckpointOp op) -> op.capture();
+	
+	private static Function<SeleniumCheckpointOp, Boolean> restoreFn = (SeleniumCheckpointOp op) -> {
+		if (op.restore()) {
+			return true;
+		}
+		TestContext.getInstance().addResult(format("Checkpoint %s could not be restored.", op.name));
+		TestContext.getInstance().fail();
+		return false;
+	};
+	
+	private static Function<SeleniumCheckpointOp, Boolean> restoreOrSetupFn = (SeleniumCheckpointOp op) -> {
+		if (op.restore()) {
+			return true;
+		}
+		for (Op setupOp : op.setupOps) {
+			if (!setupOp.execute()) {
+				return false;
+			}
+		}
+		return op.capture();
+	};
+	
+	private final Function<SeleniumCheckpointOp, Boolean> toExecute;
+	
+	private final String name;
+	
+	private List<Op> setupOps;
+	
+	private boolean newStep;
+	
+	private SeleniumCheckpointOp(Function<SeleniumCheckpointOp, Boolean> toExecute, String name) {
+		this.toExecute = toExecute;
+		this.name = name;
+	}
+	
+	@Override
+	public boolean execute() {
+		if (newStep) {
+			TestContext.getInstance().addStep();
+		}
+		return toExecute.apply(this);
+	}
+	
+	/**
+	 * Restores the checkpoint when the store has one that has not expired.
+	 * 
+	 * @return false when there is no checkpoint or restoring it failed
+	 */
+	private boolean restore() {
+		SeleniumTestContext context = SeleniumTestContext.getInstance();
+		Checkpoint checkpoint = context.getCheckpointStore().get(name);
+		if (checkpoint == null) {
+			logger.info(format("Checkpoint %s is not available.", name));
+			return false;
+		}
+		
+		long start = Timing.start();
+		try {
+			checkpoint.restore(context.getDriver());
+		} catch (WebDriverException e) {
+			logger.log(Level.WARNING, format("Failed to restore checkpoint %s.", name), e);
+			context.getCheckpointStore().invalidate(name);
+			context.increment(FALLBACK_COUNTER);
+			if (setupOps != null) {
+				context.addResult(format("Checkpoint %s could not be restored, setup was executed instead.", name));
+			}
+			return false;
+		} finally {
+			context.addTiming(Category.OP, toString(), Timing.since(start));
+		}
+		
+		logger.info(format("Restored %s as %s.", checkpoint, name));
+		context.increment(RESTORED_COUNTER);
+		return true;
+	}
+	
+	private boolean capture() {
+		SeleniumTestContext context = SeleniumTestContext.getInstance();
+		try {
+			Checkpoint checkpoint = Checkpoint.capture(context.getDriver());
+			context.getCheckpointStore().put(name, checkpoint);
+			context.increment(CAPTURED_COUNTER);
+			logger.info(format("Captured %s as %s.", checkpoint, name));
+		} catch (WebDriverException e) {
+			//Next TestCase executes the setup again, this one continues from where setup left it.
+			logger.log(Level.WARNING, format("Failed to capture checkpoint %s.", name), e);
+		}
+		return true;
+	}
+	
+	/**
+	 * Start a new TestStep before the checkpoint is restored or captured.
+	 * 
+	 * @param newStep
+	 * @return
+	 */
+	public SeleniumCheckpointOp newStep(boolean newStep) {
+		this.newStep = newStep;
+		return this;
+	}
+	
+	@Override
+	public String toString() {
+		return "checkpoint " + name;
+	}
+	
+	/**
+	 * Creates an Op that restores checkpoint of given name, or when it is not available executes given setup Ops
+	 * and captures the checkpoint after they succeed.
+	 * 
+	 * @param name
+	 * @param setupOps
+	 * @return
+	 */
+	public static SeleniumCheckpointOp of(String name, Op ... setupOps) {
+		SeleniumCheckpointOp op = new SeleniumCheckpointOp(restoreOrSetupFn, name);
+		op.setupOps = Arrays.asList(setupOps);
+		return op;
+	}
+	
+	/**
+	 * Creates an Op that captures current browser state as checkpoint of given name. Place it after Ops that
+	 * set the state up.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public static SeleniumCheckpointOp capture(String name) {
+		return new SeleniumCheckpointOp(captureFn, name);
+	}
+	
+	/**
+	 * Creates an Op that restores checkpoint of given name, it fails when the checkpoint is not available or cannot
+	 * be restored.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public static SeleniumCheckpointOp restore(String name) {
+		return new SeleniumCheckpointOp(restoreFn, name);
+	}
+
+}
@@ -0,0 +1,308 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+import com.synapticpath.naica.TestContext;
+import com.synapticpath.naica.TestStep;
+import com.synapticpath.naica.conditions.Condition;
+
+/**
+ * {@link Condition} on all elements found by a selector, such as rows of a table. Every poll collects
+ * texts of all elements by a single script instead of a lookup and a getText call per element, then the
+ * texts are checked at once. On failure, offending rows are added to current {@link TestStep}.
+ * 
+ * Created by {@link SeleniumCondition#count(SeleniumSelector, int)}, {@link SeleniumCondition#countAtLeast(SeleniumSelector, int)},
+ * {@link SeleniumCondition#texts(SeleniumSelector, String...)}, {@link SeleniumCondition#sorted(SeleniumSelector, boolean)}
+ * and {@link SeleniumCondition#allContain(SeleniumSelector, String)}.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class SeleniumCollectionCondition implements Condition {
+	
+	private static final Logger logger = Logger.getLogger(SeleniumCollectionCondition.class.getName());
+	
+	/**
+	 * At most this many offending rows are reported.
+	 */
+	public static final int MAX_REPORTED_ROWS = 10;
+	
+	//Returns trimmed texts of all elements, or only their number when texts are not needed.
+	private static final String COLLECT_SCRIPT = SeleniumScripts.FUNCTIONS
+			+ "function naicaCollect(css, xpath, withTexts) {"
+			+ "  var nodes = naicaLocateAll(css, xpath);"
+			+ "  if (!withTexts) { return nodes.length; }"
+			+ "  var texts = [];"
+			+ "  for (var i = 0; i < nodes.length; i++) { texts.push(naicaText(nodes[i]).trim()); }"
+			+ "  return texts;"
+			+ "}"
+			+ "return naicaCollect(arguments[0], arguments[1], arguments[2]);";
+	
+	private final SeleniumSelector selector;
+	
+	private final String description;
+	
+	private final boolean withTexts;
+	
+	//Returns offending rows of collected texts, empty when the condition holds.
+	private final Function<List<String>, List<String>> check;
+	
+	private int timeout = -1;
+	
+	private boolean byScript;
+	
+	protected Set<String> onSuccess;
+	
+	protected Set<String> onFailure;
+	
+	SeleniumCollectionCondition(SeleniumSelector selector, String description, boolean withTexts, 
+			Function<List<String>, List<String>> check) {
+		this.selector = selector;
+		this.description = description;
+		this.withTexts = withTexts;
+		this.check = check;
+	}
+	
+	/**
+	 * Collects the elements and checks them until the condition holds or timeout is reached.
+	 */
+	@Override
+	public boolean evaluate() {
+		
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SeleniumUtils.waitMillis(timeout));
+		byScript = SeleniumTestContext.getInstance().getDriver() instanceof JavascriptExecutor;
+		
+		List<String> violations = poll();
+		boolean first = true;
+		while (!violations.isEmpty() && System.nanoTime() < deadline) {
+			try {
+				Thread.sleep(SeleniumUtils.POLL_INTERVAL_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			first = false;
+			violations = poll();
+		}
+		
+		if (violations.isEmpty()) {
+			TestContext.getInstance().increment(first ? SeleniumUtils.IMMEDIATE_COUNTER : SeleniumUtils.WAITED_COUNTER);
+			processResultSuccess();
+			return true;
+		}
+		
+		logger.warning(format("Condition %s returns negative result.", this));
+		for (int i = 0; i < violations.size() && i < MAX_REPORTED_ROWS; i++) {
+			TestContext.getInstance().addResult(format("%s: %s", this, violations.get(i)));
+		}
+		if (violations.size() > MAX_REPORTED_ROWS) {
+			TestContext.getInstance().addResult(format("%s: %d more rows are not reported.", this, violations.size() - MAX_REPORTED_ROWS));
+		}
+		processResultFailure();
+		return false;
+	}
+	
+	private List<String> poll() {
+		try {
+			return check.apply(collect());
+		} catch (StaleElementReferenceException e) {
+			return Collections.singletonList("Elements changed while they were read.");
+		}
+	}
+	
+	/**
+	 * Collects texts of all elements, by one script when the driver can execute it.
+	 * 
+	 * @return texts, empty texts when they are not needed
+	 */
+	private List<String> collect() {
+		WebDriver driver = SeleniumTestContext.getInstance().getDriver();
+		if (byScript) {
+			try {
+				Object collected = ((JavascriptExecutor) driver).executeScript(COLLECT_SCRIPT, 
+						selector.getCss(), selector.getXpath(), withTexts);
+				if (collected instanceof Number) {
+					return Collections.nCopies(((Number) collected).intValue(), "");
+				}
+				List<String> texts = new ArrayList<String>();
+				for (Object text : (List<?>) collected) {
+					texts.add(text == null ? "" : String.valueOf(text));
+				}
+				return texts;
+			} catch (WebDriverException e) {
+				logger.log(Level.WARNING, "Collecting elements by script failed, collecting them through the driver.", e);
+				byScript = false;
+			}
+		}
+		List<String> texts = new ArrayList<String>();
+		for (WebElement element : SeleniumUtils.findElementsNow(driver, selector.toBySelector())) {
+			texts.add(withTexts ? element.getText().trim() : "");
+		}
+		return texts;
+	}
+	
+	protected void processResultSuccess() {
+		if (onSuccess != null) {
+			onSuccess.forEach((String text) -> TestContext.getInstance().addResult(text));
+		}
+	}
+	
+	protected void processResultFailure() {
+		TestContext.getInstance().fail();
+		if (onFailure != null) {
+			onFailure.forEach((String text) -> TestContext.getInstance().addResult(text));
+		}
+	}
+	
+	/**
+	 * Timeout is always in seconds.
+	 * @param timeout
+	 * @return
+	 */
+	public SeleniumCollectionCondition timeout(int timeout) {
+		this.timeout = timeout;
+		return this;
+	}
+	
+	/**
+	 * Add one or more lines of text that will be added to {@link TestStep#addResult(String)} when
+	 * this Condition is executed successfully.
+	 *  
+	 * @param text
+	 * @return
+	 */
+	public SeleniumCollectionCondition onSuccess(String ... text) {
+		if (onSuccess == null) {
+			onSuccess = new LinkedHashSet<>(); 
+		}
+		onSuccess.addAll(Arrays.asList(text));
+		return this;
+	}
+	
+	/**
+	 * Add one or more lines of text that will be added to {@link TestStep#addResult(String)} when
+	 * this Condition is not executed successfully.
+	 *  
+	 * @param text
+	 * @return
+	 */
+	public SeleniumCollectionCondition onFailure(String ... text) {
+		if (onFailure == null) {
+			onFailure = new LinkedHashSet<>(); 
+		}
+		onFailure.addAll(Arrays.asList(text));
+		return this;
+	}
+	
+	@Override
+	public String toString() {
+		return description + " " + selector;
+	}
+	
+	static Function<List<String>, List<String>> count(int count, boolean atLeast) {
+		return texts -> texts.size() == count || atLeast && texts.size() > count ? Collections.<String>emptyList() 
+				: Collections.singletonList(format("Expected %s%d elements, found %d.", atLeast ? "at least " : "", count, texts.size()));
+	}
+	
+	static Function<List<String>, List<String>> texts(List<String> expected) {
+		return texts -> {
+			List<String> violations = new ArrayList<String>();
+			if (texts.size() != expected.size()) {
+				violations.add(format("Expected %d elements, found %d.", expected.size(), texts.size()));
+			}
+			for (int i = 0; i < texts.size() && i < expected.size(); i++) {
+				if (!expected.get(i).trim().equals(texts.get(i))) {
+					violations.add(format("Row %d is '%s', expected '%s'.", i + 1, texts.get(i), expected.get(i).trim()));
+				}
+			}
+			return violations;
+		};
+	}
+	
+	static Function<List<String>, List<String>> sorted(boolean descending) {
+		return texts -> {
+			if (texts.isEmpty()) {
+				return Collections.singletonList("No elements found.");
+			}
+			Comparator<String> order = ordering(texts);
+			List<String> violations = new ArrayList<String>();
+			for (int i = 1; i < texts.size(); i++) {
+				int compared = order.compare(texts.get(i - 1), texts.get(i));
+				if (descending ? compared < 0 : compared > 0) {
+					violations.add(format("Row %d '%s' is out of order after '%s'.", i + 1, texts.get(i), texts.get(i - 1)));
+				}
+			}
+			return violations;
+		};
+	}
+	
+	static Function<List<String>, List<String>> allContain(String text) {
+		return texts -> {
+			if (texts.isEmpty()) {
+				return Collections.singletonList("No elements found.");
+			}
+			List<String> violations = new ArrayList<String>();
+			for (int i = 0; i < texts.size(); i++) {
+				if (!texts.get(i).contains(text)) {
+					violations.add(format("Row %d '%s' does not contain '%s'.", i + 1, texts.get(i), text));
+				}
+			}
+			return violations;
+		};
+	}
+	
+	/**
+	 * Numbers are compared by value when every text is one, thousands separators are ignored.
+	 * Other texts are compared alphabetically regardless of case.
+	 */
+	private static Comparator<String> ordering(List<String> texts) {
+		for (String text : texts) {
+			if (toNumber(text) == null) {
+				return String.CASE_INSENSITIVE_ORDER;
+			}
+		}
+		return Comparator.comparing(SeleniumCollectionCondition::toNumber);
+	}
+	
+	private static Double toNumber(String text) {
+		try {
+			return Double.valueOf(text.replace(",", ""));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,208 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import com.synapticpath.naica.conditions.ChainCondition;
+import com.synapticpath.naica.conditions.Condition;
+
+/**
+ * Evaluates a number of {@link SeleniumCondition}s together. The conditions are compiled into a single
+ * script, so every poll costs one executeScript call instead of a wait, a lookup and a getText or
+ * isDisplayed call per condition.
+ * 
+ * Supported are exists, notexists, visible, invisible, text and url conditions. Every condition keeps
+ * its own timeout and reports its own result, including onSuccess and onFailure texts. When the driver
+ * cannot execute the script, conditions are evaluated one by one.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class SeleniumConditionBatch implements Condition {
+	
+	private static final Logger logger = Logger.getLogger(SeleniumConditionBatch.class.getName());
+	
+	private static final String BATCH_SCRIPT = SeleniumScripts.FUNCTIONS
+			+ "function naicaCheck(spec) {"
+			+ "  var type = spec[0], css = spec[1], xpath = spec[2], text = spec[3], inverted = spec[4];"
+			+ "  if (type === 'url') { return window.location.href.indexOf(text) >= 0; }"
+			+ "  var e = naicaLocate(css, xpath);"
+			+ "  if (type === 'exists') { return inverted ? e === null : e !== null; }"
+			+ "  if (e === null) { return false; }"
+			+ "  if (type === 'visible') { return naicaVisible(e) !== inverted; }"
+			+ "  return naicaText(e).indexOf(text) >= 0;"
+			+ "}"
+			+ "var specs = arguments[0], results = [];"
+			+ "for (var i = 0; i < specs.length; i++) { results.push(naicaCheck(specs[i])); }"
+			+ "return results;";
+	
+	private List<SeleniumCondition> conditions;
+	
+	private SeleniumConditionBatch(List<SeleniumCondition> conditions) {
+		this.conditions = conditions;
+	}
+	
+	/**
+	 * Polls all conditions with one script call until each of them is either satisfied or past its timeout,
+	 * then lets every condition report its result.
+	 * 
+	 * @return true when all conditions are satisfied
+	 */
+	@Override
+	public boolean evaluate() {
+		
+		WebDriver driver = SeleniumTestContext.getInstance().getDriver();
+		if (!(driver instanceof JavascriptExecutor)) {
+			return evaluateSeparately();
+		}
+		
+		boolean [] results = new boolean [conditions.size()];
+		long [] deadlines = new long [conditions.size()];
+		long start = System.nanoTime();
+		for (int i = 0; i < conditions.size(); i++) {
+			deadlines[i] = start + TimeUnit.MILLISECONDS.toNanos(SeleniumUtils.waitMillis(conditions.get(i).getTimeout()));
+		}
+		
+		try {
+			List<Integer> pending = new ArrayList<Integer>();
+			for (int i = 0; i < conditions.size(); i++) {
+				pending.add(i);
+			}
+			
+			boolean first = true;
+			while (!pending.isEmpty()) {
+				List<?> evaluated = (List<?>) ((JavascriptExecutor) driver).executeScript(BATCH_SCRIPT, toSpecs(pending));
+				
+				List<Integer> stillPending = new ArrayList<Integer>();
+				long now = System.nanoTime();
+				for (int j = 0; j < pending.size(); j++) {
+					int index = pending.get(j);
+					if (Boolean.TRUE.equals(evaluated.get(j))) {
+						results[index] = true;
+						SeleniumTestContext.getInstance().increment(first ? SeleniumUtils.IMMEDIATE_COUNTER : SeleniumUtils.WAITED_COUNTER);
+					} else if (now < deadlines[index]) {
+						stillPending.add(index);
+					}
+				}
+				pending = stillPending;
+				first = false;
+				
+				if (!pending.isEmpty()) {
+					Thread.sleep(SeleniumUtils.POLL_INTERVAL_MILLIS);
+				}
+			}
+		} catch (WebDriverException e) {
+			logger.log(Level.WARNING, "Batched evaluation failed, evaluating conditions separately.", e);
+			return evaluateSeparately();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		boolean success = true;
+		for (int i = 0; i < conditions.size(); i++) {
+			conditions.get(i).report(results[i]);
+			success &= results[i];
+		}
+		
+		if (!success) {
+			logger.warning(format("Batch of %s conditions returns negative result.", conditions.size()));
+		}
+		return success;
+	}
+	
+	@Override
+	public String toString() {
+		return format("batch of %s conditions", conditions.size());
+	}
+	
+	private List<List<Object>> toSpecs(List<Integer> indexes) {
+		List<List<Object>> specs = new ArrayList<List<Object>>();
+		for (int index : indexes) {
+			SeleniumCondition condition = conditions.get(index);
+			SeleniumSelector selector = condition.getSelector();
+			specs.add(Arrays.asList(condition.getBatchType(), 
+					selector != null ? selector.getCss() : null, 
+					selector != null ? selector.getXpath() : null, 
+					condition.getText(), condition.isInverted()));
+		}
+		return specs;
+	}
+	
+	private boolean evaluateSeparately() {
+		boolean success = true;
+		for (SeleniumCondition condition : conditions) {
+			success &= condition.evaluate();
+		}
+		return success;
+	}
+	
+	/**
+	 * Returns true when given condition can be evaluated as part of a batch.
+	 * 
+	 * @param condition
+	 * @return
+	 */
+	public static boolean isBatchable(Condition condition) {
+		return condition instanceof SeleniumCondition && ((SeleniumCondition) condition).getBatchType() != null;
+	}
+	
+	/**
+	 * Creates a batch of given conditions, {@link ChainCondition}s are flattened.
+	 * 
+	 * @param conditions has to contain only batchable conditions, see {@link #isBatchable(Condition)}
+	 * @return
+	 */
+	public static SeleniumConditionBatch of(Condition ... conditions) {
+		List<SeleniumCondition> batch = new ArrayList<SeleniumCondition>();
+		for (Condition condition : flatten(Arrays.asList(conditions))) {
+			if (!isBatchable(condition)) {
+				throw new IllegalArgumentException(format("Condition %s cannot be batched.", condition));
+			}
+			batch.add((SeleniumCondition) condition);
+		}
+		return new SeleniumConditionBatch(batch);
+	}
+	
+	/**
+	 * Replaces {@link ChainCondition}s with conditions they chain.
+	 * 
+	 * @param conditions
+	 * @return
+	 */
+	static List<Condition> flatten(List<Condition> conditions) {
+		List<Condition> flat = new ArrayList<Condition>();
+		for (Condition condition : conditions) {
+			if (condition instanceof ChainCondition) {
+				flat.addAll(flatten(Arrays.asList(((ChainCondition) condition).getConditions())));
+			} else {
+				flat.add(condition);
+			}
+		}
+		return flat;
+	}
+}
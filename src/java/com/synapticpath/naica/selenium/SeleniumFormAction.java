@@ -0,0 +1,294 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import static com.synapticpath.naica.selenium.SeleniumUtils.interact;
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.Select;
+
+import com.synapticpath.naica.selenium.SeleniumUtils.WaitMode;
+
+/**
+ * Fills many form fields at once. Texts, checkboxes and selects are filled by a single script execution
+ * instead of several driver commands per field, each field that could not be filled is reported as
+ * a result of the current TestStep and the action fails.
+ * 
+ * When the driver cannot execute the script, fields are filled one by one through the driver.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class SeleniumFormAction extends SeleniumAction {
+
+    private static final Logger logger = Logger.getLogger(SeleniumAction.class.getName());
+    
+    static final String TEXT = "text";
+    
+    static final String CHECK = "check";
+    
+    static final String SELECT = "select";
+    
+    //Returns an array with an error for every field that could not be filled, or null when it was.
+    //A field that throws, e.g. because of an invalid selector or a page script, gets the error text and the others are still filled.
+    private static final String FORM_SCRIPT = SeleniumScripts.FUNCTIONS
+    		+ "function naicaFill(kind, e, value) {"
+    		+ "  if (!e) { return 'not found'; }"
+    		+ "  if (e.disabled) { return 'disabled'; }"
+    		+ "  if (kind === 'check') {"
+    		+ "    if (e.checked !== value) { e.click(); }"
+    		+ "    return e.checked === value ? null : 'did not change state';"
+    		+ "  }"
+    		+ "  if (kind === 'select') {"
+    		+ "    var option = null;"
+    		+ "    for (var i = 0; i < e.options.length && !option; i++) {"
+    		+ "      var o = e.options[i];"
+    		+ "      if (o.value === value || o.text.trim() === value) { option = o; }"
+    		+ "    }"
+    		+ "    if (!option) { return \"has no option '\" + value + \"'\"; }"
+    		+ "    option.selected = true;"
+    		+ "  } else {"
+    		+ "    if (e.readOnly) { return 'read only'; }"
+    		+ "    var proto = e instanceof HTMLTextAreaElement ? HTMLTextAreaElement.prototype : HTMLInputElement.prototype;"
+    		+ "    e.focus();"
+    		+ "    Object.getOwnPropertyDescriptor(proto, 'value').set.call(e, value);"
+    		+ "  }"
+    		+ "  e.dispatchEvent(new Event('input', { bubbles: true }));"
+    		+ "  e.dispatchEvent(new Event('change', { bubbles: true }));"
+    		+ "  return null;"
+    		+ "}"
+    		+ "var fields = arguments[0], blur = arguments[1], errors = [];"
+    		+ "for (var i = 0; i < fields.length; i++) {"
+    		+ "  var f = fields[i], e = null;"
+    		+ "  try {"
+    		+ "    e = naicaLocate(f[1], f[2]);"
+    		+ "    errors.push(naicaFill(f[0], e, f[3]));"
+    		+ "    if (blur && e && e.blur) { e.blur(); }"
+    		+ "  } catch (err) {"
+    		+ "    var message = String(err && err.message ? err.message : err);"
+    		+ "    if (errors.length > i) { errors[i] = message; } else { errors.push(message); }"
+    		+ "  }"
+    		+ "}"
+    		+ "return errors;";
+    
+    private static Function<SeleniumAction, Boolean> formFn = (SeleniumAction sa) -> {
+    	
+    	SeleniumFormAction sfa = (SeleniumFormAction) sa;
+    	if (sfa.fields.isEmpty()) {
+    		return true;
+    	}
+    	
+    	//The form is usually rendered at once, waiting for the first field is enough.
+    	if (!interact(sfa.fields.get(0).selector, sfa.timeout, sfa.waitMode, element -> {})) {
+    		logger.info(format("Error locating element by %s", sfa.fields.get(0).selector.toBySelector()));
+    		SeleniumTestContext.getInstance().addResult(format("Field %s could not be filled: not found.", sfa.fields.get(0).selector));
+    		return false;
+    	}
+    	
+    	List<String> errors = sfa.fillByScript();
+    	if (errors == null) {
+    		errors = sfa.fillByDriver();
+    	}
+    	
+    	boolean success = true;
+    	for (int i = 0; i < sfa.fields.size(); i++) {
+    		if (errors.get(i) != null) {
+    			SeleniumTestContext.getInstance().addResult(format("Field %s could not be filled: %s.", sfa.fields.get(i).selector, errors.get(i)));
+    			success = false;
+    		}
+    	}
+    	return success;
+    };
+    
+    protected final List<Field> fields = new ArrayList<Field>();
+    
+    protected boolean blur;
+    
+    protected SeleniumFormAction() {
+    	super(formFn);
+    }
+    
+    /**
+     * Fills all fields by one script execution.
+     * 
+     * @return error or null for every field, null when the script could not be executed
+     */
+    private List<String> fillByScript() {
+    	WebDriver driver = SeleniumTestContext.getInstance().getDriver();
+    	if (!(driver instanceof JavascriptExecutor)) {
+    		return null;
+    	}
+    	List<List<Object>> specs = new ArrayList<List<Object>>();
+    	for (Field field : fields) {
+    		specs.add(Arrays.asList(field.kind, field.selector.getCss(), field.selector.getXpath(), field.value));
+    	}
+    	try {
+    		logger.info(format("Filling %d fields by script", fields.size()));
+    		List<?> evaluated = (List<?>) ((JavascriptExecutor) driver).executeScript(FORM_SCRIPT, specs, blur);
+    		List<String> errors = new ArrayList<String>();
+    		for (Object error : evaluated) {
+    			errors.add(error == null ? null : String.valueOf(error));
+    		}
+    		return errors;
+    	} catch (WebDriverException e) {
+    		logger.log(Level.WARNING, "Filling form by script failed, filling fields separately.", e);
+    		return null;
+    	}
+    }
+    
+    /**
+     * Fills fields one by one through the driver.
+     * 
+     * @return error or null for every field
+     */
+    private List<String> fillByDriver() {
+    	List<String> errors = new ArrayList<String>();
+    	for (Field field : fields) {
+    		String[] error = new String[1];
+    		boolean found = interact(field.selector, timeout, waitMode, element -> {
+    			error[0] = null;
+    			if (!element.isEnabled()) {
+    				error[0] = "disabled";
+    				return;
+    			}
+    			logger.info(format("Filling %s %s with %s", field.kind, field.selector.toBySelector(), field.value));
+    			if (CHECK.equals(field.kind)) {
+    				if (element.isSelected() != (Boolean) field.value) {
+    					element.click();
+    				}
+    			} else if (SELECT.equals(field.kind)) {
+    				error[0] = select(element, (String) field.value);
+    			} else {
+    				element.clear();
+    				element.sendKeys((String) field.value);
+    			}
+    			if (blur) {
+    				SeleniumTextAction.doBlurByJavascript(element);
+    			}
+    		});
+    		errors.add(found ? error[0] : "not found");
+    	}
+    	return errors;
+    }
+    
+    private static String select(WebElement element, String value) {
+    	Select select = new Select(element);
+    	for (WebElement option : select.getOptions()) {
+    		if (value.equals(option.getAttribute("value")) || value.equals(option.getText().trim())) {
+    			option.click();
+    			return null;
+    		}
+    	}
+    	return format("has no option '%s'", value);
+    }
+    
+    /**
+     * Sets the text of an input or textarea, previous text is replaced.
+     * 
+     * @param selector
+     * @param text
+     * @return
+     */
+    public SeleniumFormAction field(SeleniumSelector selector, String text) {
+    	fields.add(new Field(TEXT, selector, text == null ? "" : text));
+    	return this;
+    }
+    
+    /**
+     * Checks or unchecks a checkbox or a radio button by clicking it when its state differs.
+     * 
+     * @param selector
+     * @param checked
+     * @return
+     */
+    public SeleniumFormAction check(SeleniumSelector selector, boolean checked) {
+    	fields.add(new Field(CHECK, selector, checked));
+    	return this;
+    }
+    
+    /**
+     * Selects the option of a select element that has given value or visible text.
+     * 
+     * @param selector
+     * @param option
+     * @return
+     */
+    public SeleniumFormAction select(SeleniumSelector selector, String option) {
+    	fields.add(new Field(SELECT, selector, option));
+    	return this;
+    }
+    
+    /**
+     * Blurs every field after it is filled, for forms that validate fields on blur.
+     * 
+     * @param blur
+     * @return
+     */
+    public SeleniumFormAction blur(boolean blur) {
+    	this.blur = blur;
+    	return this;
+    }
+    
+    public SeleniumFormAction timeout(int timeout) {
+    	super.timeout(timeout);
+        return this;
+    }
+    
+    public SeleniumFormAction waitMode(WaitMode waitMode) {
+    	super.waitMode(waitMode);
+        return this;
+    }
+    
+    public SeleniumFormAction mayOpenWindow(boolean mayOpenWindow) {
+    	super.mayOpenWindow(mayOpenWindow);
+        return this;
+    }
+    
+    @Override
+    public String toString() {
+    	return "form of " + fields.size() + " fields";
+    }
+    
+    /**
+     * A field to be filled, value is a String for texts and selects, a Boolean for checks.
+     */
+    protected static class Field {
+    	
+    	final String kind;
+    	
+    	final SeleniumSelector selector;
+    	
+    	final Object value;
+    	
+    	Field(String kind, SeleniumSelector selector, Object value) {
+    		this.kind = kind;
+    		this.selector = selector;
+    		this.value = value;
+    	}
+    }
+
+}
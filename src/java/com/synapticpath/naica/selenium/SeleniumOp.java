@@ -1,120 +1,285 @@
-/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
-
- This program is free software: you can redistribute it and/or modify
-    it under the terms of the GNU General Public License as published by
-    the Free Software Foundation, either version 3 of the License, or
-    (at your option) any later version.
-
-    This program is distributed in the hope that it will be useful,
-    but WITHOUT ANY WARRANTY; without even the implied warranty of
-    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
-    GNU General Public License for more details.
-
-    You should have received a copy of the GNU General Public License
-    along with this program.  If not, see <http://www.gnu.org/licenses/>.
-*/
-package com.synapticpath.naica.selenium;
-
-import java.util.Iterator;
-
-import org.openqa.selenium.WebDriver;
-
-import com.synapticpath.naica.actions.Action;
-import com.synapticpath.naica.conditions.Condition;
-import com.synapticpath.naica.ops.BaseOp;
-
-/**
- * This is an implementation of {@link Op} for Selenium.
- * 
- * @author developer@synapticpath.com
- *
- */
-public class SeleniumOp extends BaseOp {
-
-    
-    protected SeleniumOp(Action [] actions, Condition [] resultConditions) {
-    	super(actions, resultConditions);
-    }
-
-    protected void processActionSuccess(Action action) {
-    	WebDriver driver = SeleniumTestContext.getInstance().getDriver();
-    	Iterator<String> iter = driver.getWindowHandles().iterator();
-        String firstHandle = iter.next();
-        String lastHandle = firstHandle;
-        while (iter.hasNext()) {
-            lastHandle = iter.next();
-        }
-        if (!lastHandle.equals(firstHandle)) {
-            driver.switchTo().window(lastHandle);
-        }
-    }    	    
-
-    /**
-     * Add one or more actions to this Op to execute.
-     */
-	@Override
-	public SeleniumOp action(Action ... actions) {
-		super.action(actions);
-		return this;
-	}
-
-	/**
-	 * Add one or more {@link Condition}s to evaluate to validate execution.
-	 */
-	@Override
-	public SeleniumOp condition(Condition ... conditions) {
-		super.condition(conditions);
-		return this;
-	}
-
-	/**
-	 * Create a new {@link TestStep} before execution of this Op starts.
-	 */
-	@Override
-	public SeleniumOp newStep(boolean newStep) {		
-		super.newStep(newStep);
-		return this;
-	}
-
-	/**
-	 * Add one or more action descriptions to current TestStep when executed.
-	 */
-	@Override
-	public SeleniumOp description(String ... actionDescriptions) {
-		super.description(actionDescriptions);
-		return this;
-	}
-	
-	
-	/**
-	 * Set text(s) to add to TestStep results when execution of this Operation succeeds. 
-	 */
-	@Override
-	public SeleniumOp onSuccess(String ... text) {
-		super.onSuccess(text);
-		return this;
-	}
-
-	/**
-	 * Set text(s) to add to TestStep results when execution of this Operation fails. 
-	 * 
-	 * 
-	 */
-	@Override
-	public SeleniumOp onFailure(String ... text) {		
-		super.onFailure(text);
-		return this;
-	} 
-	
-	/**
-	 * Create Op (Operation) instance given an {@link Action} to perform and one or more
-	 * {@link Condition}s to evaluate.
-	 * @param action
-	 * @param resultCondition
-	 * @return
-	 */
-	public static SeleniumOp on(Action action, Condition ... resultCondition) {
-        return new SeleniumOp(new Action [] {action}, resultCondition);
-    }
-   
-}
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import com.synapticpath.naica.TestContext;
+import com.synapticpath.naica.Timing;
+import com.synapticpath.naica.Timing.Category;
+import com.synapticpath.naica.actions.Action;
+import com.synapticpath.naica.conditions.Condition;
+import com.synapticpath.naica.ops.BaseOp;
+
+/**
+ * This is an implementation of {@link Op} for Selenium.
+ * 
+ * After an action that may open a window, the Op switches to the new window, see {@link WindowTracker}
+ * and {@link #trackWindows(boolean)}.
+ * 
+ * When waiting for network idle, see {@link #waitForNetworkIdle(long)}, conditions are evaluated only after
+ * the page is done with requests the actions caused.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class SeleniumOp extends BaseOp {
+	
+    private static final Logger logger = Logger.getLogger(SeleniumOp.class.getName());
+
+    private boolean batchConditions;
+    
+    private boolean trackWindows = true;
+    
+    //Null when this Op does not wait for network idle after actions.
+    private Long networkQuietMillis;
+    
+    protected SeleniumOp(Action [] actions, Condition [] resultConditions) {
+    	super(actions, resultConditions);
+    }
+
+    /**
+     * When the driver is instrumented, time spent on driver commands is recorded per command to current step,
+     * see {@link InstrumentedWebDriver}.
+     */
+    @Override
+    public boolean execute() {
+    	InstrumentedWebDriver instrumented = InstrumentedWebDriver.of(SeleniumTestContext.getInstance().getDriver());
+    	if (instrumented == null) {
+    		return super.execute();
+    	}
+    	
+    	instrumented.beginOp(getName());
+    	try {
+    		return super.execute();
+    	} finally {
+    		instrumented.endOp().forEach((command, nanos) -> TestContext.getInstance().addTiming(Category.COMMAND, command, nanos));
+    	}
+    }
+
+    /**
+     * When waiting for network idle, the tracker is installed before actions and the Op waits for idle after them.
+     */
+    @Override
+    protected boolean doActions() {
+    	WebDriver driver = SeleniumTestContext.getInstance().getDriver();
+    	boolean trackNetwork = networkQuietMillis != null && driver instanceof JavascriptExecutor;
+    	if (trackNetwork) {
+    		try {
+    			NetworkIdleWait.install(driver);
+    		} catch (WebDriverException e) {
+    			logger.log(Level.WARNING, "Failed to install network tracker, not waiting for network idle.", e);
+    			trackNetwork = false;
+    		}
+    	}
+    	boolean performed = super.doActions();
+    	if (performed && trackNetwork) {
+    		awaitNetworkIdle(driver);
+    	}
+    	return performed;
+    }
+    
+    /**
+     * Waits until the page is idle, a page that does not get idle in time is left to the conditions to judge.
+     */
+    private void awaitNetworkIdle(WebDriver driver) {
+    	long start = Timing.start();
+    	try {
+    		String pending = NetworkIdleWait.waitForIdle(driver, networkQuietMillis, SeleniumUtils.waitMillis(-1));
+    		if (pending != null) {
+    			logger.warning(format("Page did not become idle after actions of %s, %s.", getName(), pending));
+    		}
+    	} catch (WebDriverException e) {
+    		logger.log(Level.WARNING, "Network idle wait failed.", e);
+    	}
+    	TestContext.getInstance().addTiming(Category.WAIT, "network idle", Timing.since(start));
+    }
+
+    /**
+     * Lets the {@link WindowTracker} see windows that are open before an action that may open a new one.
+     * Any other action may still open a window unseen, so the tracker reads handles again before the next tracked action.
+     */
+    @Override
+    protected void processActionStart(Action action) {
+    	WebDriver driver = SeleniumTestContext.getInstance().getDriver();
+    	if (trackWindows && WindowTracker.mayOpenWindow(action)) {
+    		WindowTracker.of(driver).beforeAction(driver);
+    	} else {
+    		WindowTracker.of(driver).invalidate();
+    	}
+    }
+    
+    protected void processActionSuccess(Action action) {
+    	if (trackWindows && WindowTracker.mayOpenWindow(action)) {
+    		WebDriver driver = SeleniumTestContext.getInstance().getDriver();
+    		WindowTracker.of(driver).afterAction(driver);
+    	}
+    }    	    
+    
+    /**
+     * When batching, all batchable conditions (including those chained by ChainCondition) are evaluated
+     * together by a {@link SeleniumConditionBatch}, other conditions are evaluated one by one afterwards.
+     */
+    @Override
+    protected boolean evaluateConditions() {
+    	if (!batchConditions) {
+    		return super.evaluateConditions();
+    	}
+    	
+    	List<Condition> batchable = new ArrayList<Condition>();
+    	List<Condition> others = new ArrayList<Condition>();
+    	for (Condition condition : SeleniumConditionBatch.flatten(getConditions())) {
+    		if (SeleniumConditionBatch.isBatchable(condition)) {
+    			batchable.add(condition);
+    		} else {
+    			others.add(condition);
+    		}
+    	}
+    	
+    	if (!batchable.isEmpty() && !evaluate(SeleniumConditionBatch.of(batchable.toArray(new Condition[0])))) {
+    		return false;
+    	}
+    	for (Condition condition : others) {
+    		if (!evaluate(condition)) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+    
+    /**
+     * Evaluate Selenium conditions of this Op in a single script per poll, see {@link SeleniumConditionBatch}.
+     * 
+     * @param batchConditions
+     * @return
+     */
+    public SeleniumOp batchConditions(boolean batchConditions) {
+    	this.batchConditions = batchConditions;
+    	return this;
+    }
+
+    /**
+     * Switch to windows opened by actions of this Op, default is true. Turn it off for Ops that never open
+     * windows to save a round trip after actions that may open one.
+     * 
+     * @param trackWindows
+     * @return
+     */
+    public SeleniumOp trackWindows(boolean trackWindows) {
+    	this.trackWindows = trackWindows;
+    	return this;
+    }
+
+    /**
+     * After actions are performed, wait until the page has had no fetch or XMLHttpRequest requests and short
+     * timers pending for given quiet window before conditions are evaluated, see {@link NetworkIdleWait}.
+     * The wait is limited by {@link SeleniumUtils#MAX_WAIT} and the deadline of this Op.
+     * 
+     * @param quietMillis
+     * @return
+     */
+    public SeleniumOp waitForNetworkIdle(long quietMillis) {
+    	this.networkQuietMillis = quietMillis;
+    	return this;
+    }
+
+    /**
+     * Add one or more actions to this Op to execute.
+     */
+	@Override
+	public SeleniumOp action(Action ... actions) {
+		super.action(actions);
+		return this;
+	}
+
+	/**
+	 * Add one or more {@link Condition}s to evaluate to validate execution.
+	 */
+	@Override
+	public SeleniumOp condition(Condition ... conditions) {
+		super.condition(conditions);
+		return this;
+	}
+
+	/**
+	 * Create a new {@link TestStep} before execution of this Op starts.
+	 */
+	@Override
+	public SeleniumOp newStep(boolean newStep) {		
+		super.newStep(newStep);
+		return this;
+	}
+
+	/**
+	 * Set the number of seconds this Op may take in total, its actions and conditions wait only for what is left.
+	 */
+	@Override
+	public SeleniumOp deadline(int seconds) {
+		super.deadline(seconds);
+		return this;
+	}
+
+	/**
+	 * Add one or more action descriptions to current TestStep when executed.
+	 */
+	@Override
+	public SeleniumOp description(String ... actionDescriptions) {
+		super.description(actionDescriptions);
+		return this;
+	}
+	
+	
+	/**
+	 * Set text(s) to add to TestStep results when execution of this Operation succeeds. 
+	 */
+	@Override
+	public SeleniumOp onSuccess(String ... text) {
+		super.onSuccess(text);
+		return this;
+	}
+
+	/**
+	 * Set text(s) to add to TestStep results when execution of this Operation fails. 
+	 * 
+	 * 
+	 */
+	@Override
+	public SeleniumOp onFailure(String ... text) {		
+		super.onFailure(text);
+		return this;
+	} 
+	
+	/**
+	 * Create Op (Operation) instance given an {@link Action} to perform and one or more
+	 * {@link Condition}s to evaluate.
+	 * @param action
+	 * @param resultCondition
+	 * @return
+	 */
+	public static SeleniumOp on(Action action, Condition ... resultCondition) {
+        return new SeleniumOp(new Action [] {action}, resultCondition);
+    }
+   
+}
@@ -0,0 +1,61 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+/**
+ * JavaScript snippets shared by components that evaluate things inside the page rather than
+ * through individual driver commands.
+ * 
+ * Functions defined in {@link #FUNCTIONS} expect a selector to be passed as a pair of css and xpath
+ * strings, where one of them is null, see {@link SeleniumSelector#getCss()} and {@link SeleniumSelector#getXpath()}.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+final class SeleniumScripts {
+	
+	/**
+	 * naicaLocate(css, xpath) returns the first matching element or null,
+	 * naicaLocateAll(css, xpath) returns an array of all matching elements,
+	 * naicaVisible(element) approximates WebElement.isDisplayed(),
+	 * naicaText(element) approximates WebElement.getText().
+	 */
+	static final String FUNCTIONS = 
+			  "function naicaLocate(css, xpath) {"
+			+ "  if (css !== null) { return document.querySelector(css); }"
+			+ "  return document.evaluate(xpath, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;"
+			+ "}"
+			+ "function naicaLocateAll(css, xpath) {"
+			+ "  if (css !== null) { return Array.prototype.slice.call(document.querySelectorAll(css)); }"
+			+ "  var snapshot = document.evaluate(xpath, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+			+ "  var nodes = [];"
+			+ "  for (var i = 0; i < snapshot.snapshotLength; i++) { nodes.push(snapshot.snapshotItem(i)); }"
+			+ "  return nodes;"
+			+ "}"
+			+ "function naicaVisible(e) {"
+			+ "  if (!e) { return false; }"
+			+ "  var style = window.getComputedStyle(e);"
+			+ "  if (style.display === 'none' || style.visibility === 'hidden' || style.opacity === '0') { return false; }"
+			+ "  return !!(e.offsetWidth || e.offsetHeight || e.getClientRects().length);"
+			+ "}"
+			+ "function naicaText(e) {"
+			+ "  var text = e.innerText !== undefined ? e.innerText : e.textContent;"
+			+ "  return text === null ? '' : text;"
+			+ "}";
+	
+	private SeleniumScripts() {
+	}
+}
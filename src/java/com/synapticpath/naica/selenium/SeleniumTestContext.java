@@ -15,47 +15,258 @@
 */
 package com.synapticpath.naica.selenium;
 
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import org.openqa.selenium.WebDriver;
 
+import com.synapticpath.naica.TestCase;
 import com.synapticpath.naica.TestContext;
+import com.synapticpath.naica.attachments.SnapshotWriter;
+import com.synapticpath.naica.selenium.SeleniumUtils.WaitMode;
 
 /**
  * TestContext to be used for Selenium tests. This subclass also holds Selenium
  * driver and provides it to all that need it.
  * 
+ * When a {@link WebDriverPool} is set, a driver is leased from the pool for every TestCase
+ * and returned to it when the TestCase stops.
+ * 
  * @author developer@synapticpath.com
  *
  */
 public final class SeleniumTestContext extends TestContext {
 	
-	private WebDriver driver;
+	private static final Logger logger = Logger.getLogger(SeleniumTestContext.class.getName());
+	
+	//Volatile as the Watchdog quits it from its own thread, see abort().
+	private volatile WebDriver driver;
+	
+	//True when the driver was created from the driver factory, such a driver is quit rather than closed.
+	private boolean driverOwner;
+	
+	private Supplier<WebDriver> driverFactory;
+	
+	private WebDriverPool driverPool;
+	
+	//Only the context the pool was set on shuts it down, workers just share it.
+	private boolean driverPoolOwner;
+	
+	private boolean driverLeased;
+	
+	private WaitMode waitMode = WaitMode.POLLING;
+	
+	private SnapshotWriter snapshotWriter;
+	
+	private boolean snapshotWriterOwner;
+	
+	private CheckpointStore checkpointStore = new CheckpointStore();
+	
+	/**
+	 * Leases a driver for the new TestCase when a {@link WebDriverPool} is set.
+	 */
+	@Override
+	public TestCase newTestCase(String id) {
+		TestCase testCase = super.newTestCase(id);
+		if (driverPool != null && driver == null) {
+			driver = driverPool.lease();
+			driverLeased = true;
+		}
+		return testCase;
+	}
 	
 	/**
-	 * Call this when tests are finished.
+	 * Stops current TestCase and returns a leased driver to the pool.
+	 */
+	@Override
+	public void stop() {
+		super.stop();
+		if (driverLeased) {
+			WebDriver leased = driver;
+			driver = null;
+			driverLeased = false;
+			driverPool.release(leased);
+		}
+	}
+	
+	/**
+	 * Quits current driver, so that a TestCase waiting on it fails fast. Called by the Watchdog.
+	 */
+	@Override
+	public void abort() {
+		WebDriver current = driver;
+		if (current != null) {
+			try {
+				current.quit();
+			} catch (RuntimeException e) {
+				logger.log(Level.WARNING, "Failed to quit driver of cancelled TestCase.", e);
+			}
+		}
+	}
+	
+	/**
+	 * Replaces the driver quit by {@link #abort()} with a new one from the driver factory. A leased driver
+	 * needs no replacement, the pool replaces drivers that cannot be reset when they are released.
+	 */
+	@Override
+	public void recover() {
+		if (driverPool != null) {
+			return;
+		}
+		if (driverFactory != null) {
+			driver = driverFactory.get();
+			driverOwner = true;
+		} else {
+			logger.severe("Driver of cancelled TestCase cannot be replaced, no driver factory is set.");
+		}
+	}
+	
+	/**
+	 * Call this when tests are finished. A driver created from the driver factory is quit, which also stops
+	 * its driver server, a driver set by {@link #setDriver(WebDriver)} is only closed.
 	 */
 	@Override
 	public void finalize() {
 		super.finalize();
-    	driver.close();    	
+		InstrumentedWebDriver instrumented = InstrumentedWebDriver.of(driver);
+		if (instrumented != null) {
+			logger.info("Driver commands:\n" + instrumented.getStatistics());
+		}
+		if (driver != null && driverOwner) {
+			driver.quit();
+		} else if (driver != null) {
+			driver.close();
+		}
+		if (driverPoolOwner) {
+			driverPool.shutdown();
+		}
+		if (snapshotWriterOwner) {
+			snapshotWriter.shutdown();
+		}
     }
 	
+	/**
+	 * Creates a SeleniumTestContext for a parallel worker. The worker leases drivers from the shared pool
+	 * when one is set, otherwise it gets its own driver from the driver factory, see {@link #setDriverFactory(Supplier)}.
+	 */
+	@Override
+	public SeleniumTestContext newWorkerContext() {
+		SeleniumTestContext context = new SeleniumTestContext();
+		configureWorkerContext(context);
+		context.setWaitMode(waitMode);
+		context.snapshotWriter = snapshotWriter;
+		context.checkpointStore = checkpointStore;
+		
+		if (driverPool != null) {
+			context.driverPool = driverPool;
+			return context;
+		}
+		
+		if (driverFactory == null) {
+			throw new IllegalStateException("Driver factory or pool has to be set in order to run Selenium tests in parallel.");
+		}
+		context.setDriverFactory(driverFactory);
+		context.setDriver(driverFactory.get());
+		context.driverOwner = true;
+		return context;
+	}
+	
 	public WebDriver getDriver() {
 		return driver;
 	}
 	
 	public void setDriver(WebDriver driver) {
 		this.driver = driver;
+		this.driverOwner = false;
 	} 
 	
-	public synchronized static SeleniumTestContext getInstance() {
+	public Supplier<WebDriver> getDriverFactory() {
+		return driverFactory;
+	}
+	
+	/**
+	 * Sets the factory that creates a new driver for every parallel worker.
+	 * @param driverFactory
+	 */
+	public void setDriverFactory(Supplier<WebDriver> driverFactory) {
+		this.driverFactory = driverFactory;
+	}
+	
+	public WebDriverPool getDriverPool() {
+		return driverPool;
+	}
+	
+	/**
+	 * Sets the pool to lease a driver from for every TestCase. Parallel workers share the pool,
+	 * which is shut down when this context is finalized.
+	 * 
+	 * @param driverPool
+	 */
+	public void setDriverPool(WebDriverPool driverPool) {
+		this.driverPool = driverPool;
+		this.driverPoolOwner = driverPool != null;
+	}
+	
+	public WaitMode getWaitMode() {
+		return waitMode;
+	}
+	
+	/**
+	 * Sets the default way of waiting for elements, conditions and actions can override it.
+	 * Default is {@link WaitMode#POLLING}.
+	 * 
+	 * @param waitMode
+	 */
+	public void setWaitMode(WaitMode waitMode) {
+		this.waitMode = waitMode;
+	}
+	
+	public SnapshotWriter getSnapshotWriter() {
+		return snapshotWriter;
+	}
+	
+	/**
+	 * Sets a writer to store snapshots in background. Parallel workers share the writer, it is
+	 * flushed and shut down when this context is finalized, that is before reports are generated.
+	 * 
+	 * @param snapshotWriter
+	 */
+	public void setSnapshotWriter(SnapshotWriter snapshotWriter) {
+		this.snapshotWriter = snapshotWriter;
+		this.snapshotWriterOwner = snapshotWriter != null;
+	}
+	
+	public CheckpointStore getCheckpointStore() {
+		return checkpointStore;
+	}
+	
+	/**
+	 * Sets the store of checkpoints restored by {@link SeleniumCheckpointOp}, parallel workers share it.
+	 * By default every context has a store whose checkpoints expire after {@link CheckpointStore#DEFAULT_EXPIRY_MILLIS}.
+	 * 
+	 * @param checkpointStore
+	 */
+	public void setCheckpointStore(CheckpointStore checkpointStore) {
+		this.checkpointStore = checkpointStore;
+	}
+	
+	/**
+	 * Returns SeleniumTestContext of the calling thread, replacing a plain TestContext if needed.
+	 * No locking is involved as the instance is confined to the thread.
+	 * 
+	 * @return
+	 */
+	public static SeleniumTestContext getInstance() {
 		
 		TestContext instance = TestContext.getInstance();
-		if (!(instance instanceof SeleniumTestContext)) {
-			
-			instance.mergeInstances(new SeleniumTestContext());
+		if (instance instanceof SeleniumTestContext) {
+			return (SeleniumTestContext) instance;
 		}
 		
-		return (SeleniumTestContext)TestContext.getInstance();
+		SeleniumTestContext context = new SeleniumTestContext();
+		instance.mergeInstances(context);
+		return context;
 	}
 
 }
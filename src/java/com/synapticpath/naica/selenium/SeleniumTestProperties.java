@@ -37,6 +37,10 @@ public class SeleniumTestProperties implements TestProperties {
 	
 	private String reportDirectory;
 	
+	private int opTimeout;
+	
+	private long implicitWait;
+	
 	public SeleniumTestProperties (String basePath) {		
 		this.basePath = basePath;
 		new File(basePath).mkdirs();
@@ -61,5 +65,35 @@ public class SeleniumTestProperties implements TestProperties {
 	}
 
 
+	@Override
+	public int getOpTimeout() {
+		return opTimeout;
+	}
+
+
+	/**
+	 * Sets the default number of seconds an Op may take in total, 0 (default) means Ops have no deadline.
+	 * @param opTimeout
+	 */
+	public void setOpTimeout(int opTimeout) {
+		this.opTimeout = opTimeout;
+	}
+
+
+	public long getImplicitWait() {
+		return implicitWait;
+	}
+
+
+	/**
+	 * Sets the number of milliseconds the driver is configured to wait implicitly for elements, 0 (default) means
+	 * the driver does not wait. When set, checks that must not wait turn the implicit wait off and restore it afterwards.
+	 * @param implicitWait
+	 */
+	public void setImplicitWait(long implicitWait) {
+		this.implicitWait = implicitWait;
+	}
+
+
 	
 }
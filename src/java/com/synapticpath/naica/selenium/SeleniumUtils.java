@@ -18,28 +18,43 @@ package com.synapticpath.naica.selenium;
 import static java.lang.String.format;
 
 import java.io.File;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.OutputType;
+import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.FluentWait;
 
 import com.synapticpath.naica.TestContext;
+import com.synapticpath.naica.TestProperties;
 import com.synapticpath.naica.attachments.SnapshotAttachment;
 
 /**
  * Some utilities to make using Selenium easier. TODO double check whether this
  * is still the case with latest Selenium release.
  * 
+ * Waits first check the current state of the page once and only wait when it does not match yet.
+ * Naica waits explicitly, a driver configured to wait implicitly would make every negative check take as long
+ * as the implicit wait. When the implicit wait is set in {@link SeleniumTestProperties#setImplicitWait(long)},
+ * it is turned off for each immediate lookup and restored afterwards, otherwise the driver is left alone. Waits satisfied
+ * immediately and after waiting are counted, see {@link #IMMEDIATE_COUNTER} and {@link #WAITED_COUNTER}.
+ * 
+ * Elements found are kept in the {@link ElementCache} of the driver and reused by later lookups with the same selector.
+ * 
  * @author developer@synapticpath.com
  *
  */
@@ -49,6 +64,53 @@ public class SeleniumUtils {
 	public static final int MAX_WAIT = 30; // maximum seconds to wait for things
 											// to happen
 	public static final long POLL_INTERVAL_MILLIS = 100;
+	
+	/**
+	 * Counter of waits satisfied by the page as it was, without waiting, see {@link TestContext#increment(String)}.
+	 */
+	public static final String IMMEDIATE_COUNTER = "waits satisfied immediately";
+	
+	/**
+	 * Counter of waits satisfied after waiting.
+	 */
+	public static final String WAITED_COUNTER = "waits satisfied after waiting";
+	
+	//Selenium drivers take screenshots in png format
+	private static final String SNAPSHOT_EXTENSION = "png";
+	
+	/**
+	 * Ways of waiting for a state of the page.
+	 */
+	public static enum WaitMode {
+		/**
+		 * Asks the driver for the state every {@link SeleniumUtils#POLL_INTERVAL_MILLIS}.
+		 */
+		POLLING,
+		/**
+		 * Waits inside the page for DOM mutations, see {@link DomObserverWait}. Falls back to
+		 * polling when the driver cannot execute the script.
+		 */
+		OBSERVER,
+		/**
+		 * Waits inside the page until it has no fetch or XMLHttpRequest requests and short timers pending, see
+		 * {@link NetworkIdleWait}, then checks the state and polls for the rest of the timeout. Falls back to
+		 * polling when the driver cannot execute the script.
+		 */
+		NETWORK_IDLE;
+	}
+
+	/**
+	 * Returns the number of milliseconds to wait for given timeout, which is limited by the deadline of the Op
+	 * being executed, see {@link TestContext#getRemainingOpMillis()}.
+	 * 
+	 * @param timeout
+	 *            number of seconds to wait if positive number, otherwise {@link #MAX_WAIT} applies.
+	 * @return
+	 */
+	public static long waitMillis(int timeout) {
+		long millis = TimeUnit.SECONDS.toMillis(timeout > -1 ? timeout : MAX_WAIT);
+		return Math.min(millis, SeleniumTestContext.getInstance().getRemainingOpMillis());
+	}
 
 	/**
 	 * Overloads {@link SeleniumUtils#findElementWithTimeout(SeleniumSelector, Boolean, String, int)}
@@ -78,24 +140,75 @@ public class SeleniumUtils {
 	 */
 	public static WebElement findElementWithTimeout(final SeleniumSelector elementSelector, final Boolean visible,
 			final String withText, int timeout) {
+		
+		return findElementWithTimeout(elementSelector, visible, withText, timeout, null);
+	}
+
+	/**
+	 * Same as {@link SeleniumUtils#findElementWithTimeout(SeleniumSelector, Boolean, String, int)}, using given
+	 * {@link WaitMode}. When waitMode is null, {@link SeleniumTestContext#getWaitMode()} applies.
+	 */
+	public static WebElement findElementWithTimeout(final SeleniumSelector elementSelector, final Boolean visible,
+			final String withText, int timeout, WaitMode waitMode) {
 
 		final WebDriver driver = SeleniumTestContext.getInstance().getDriver();
+		
+		WebElement found = findElementNow(driver, elementSelector, visible, withText);
+		if (found != null) {
+			TestContext.getInstance().increment(IMMEDIATE_COUNTER);
+			return found;
+		}
+		
+		if (isObserverWait(driver, waitMode)) {
+			try {
+				WebElement element = DomObserverWait.waitForElement(driver, elementSelector, visible, withText, 
+						waitMillis(timeout));
+				if (element == null) {
+					logger.severe(format("Element selected by %s, visible:%s, withText:%s was not found in time.", elementSelector, visible, withText));
+				} else {
+					ElementCache.of(driver).put(elementSelector, element);
+					TestContext.getInstance().increment(WAITED_COUNTER);
+				}
+				return element;
+			} catch (WebDriverException e) {
+				logger.log(Level.WARNING, "Observer wait failed, falling back to polling.", e);
+			}
+		}
+		
+		long pollMillis = waitMillis(timeout);
+		if (isNetworkIdleWait(driver, waitMode)) {
+			pollMillis = awaitNetworkIdle(driver, pollMillis);
+			found = findElementNow(driver, elementSelector, visible, withText);
+			if (found != null) {
+				TestContext.getInstance().increment(WAITED_COUNTER);
+				return found;
+			}
+		}
 
+		ElementCache cache = ElementCache.of(driver);
 		FluentWait<WebDriver> wait = new FluentWait<WebDriver>(driver)
-				.withTimeout(timeout > -1 ? timeout : MAX_WAIT, TimeUnit.SECONDS)
+				.withTimeout(pollMillis, TimeUnit.MILLISECONDS)
 				.pollingEvery(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS).ignoring(NoSuchElementException.class)
 				.ignoring(TimeoutException.class);
 
 		try {
-			return wait.until((WebDriver d) -> {
-				WebElement e = d.findElement(elementSelector.toBySelector());
-					if (e != null && (withText == null || e.getText().contains(withText))
-							&& (visible == null || visible && e.isDisplayed() || !visible && !e.isDisplayed())) {
+			WebElement element = wait.until((WebDriver d) -> {
+				WebElement e = cache.get(elementSelector);
+				if (e == null) {
+					e = d.findElement(elementSelector.toBySelector());
+					cache.put(elementSelector, e);
+				}
+				try {
+					if (matches(e, visible, withText)) {
 						return e;
 					}
-					return null;
+				} catch (StaleElementReferenceException stale) {
+					cache.evict(elementSelector);
 				}
-			);
+				return null;
+			});
+			TestContext.getInstance().increment(WAITED_COUNTER);
+			return element;
 		} catch (TimeoutException te) {
 			logger.severe(format("Element selected by %s, visible:%s, withText:%s was not found in time.", elementSelector, visible, withText));
 		}
@@ -115,15 +228,56 @@ public class SeleniumUtils {
 	 */
 
 	public static boolean waitUntilElementGoneWithTimeout(final SeleniumSelector elementSelector, final int timeout) {
+		
+		return waitUntilElementGoneWithTimeout(elementSelector, timeout, null);
+	}
+	
+	/**
+	 * Same as {@link SeleniumUtils#waitUntilElementGoneWithTimeout(SeleniumSelector, int)}, using given
+	 * {@link WaitMode}. When waitMode is null, {@link SeleniumTestContext#getWaitMode()} applies.
+	 */
+	public static boolean waitUntilElementGoneWithTimeout(final SeleniumSelector elementSelector, final int timeout, WaitMode waitMode) {
 
 		final WebDriver driver = SeleniumTestContext.getInstance().getDriver();
+		
+		ElementCache.of(driver).evict(elementSelector);
+		if (findElementsNow(driver, elementSelector.toBySelector()).isEmpty()) {
+			TestContext.getInstance().increment(IMMEDIATE_COUNTER);
+			return true;
+		}
+		
+		if (isObserverWait(driver, waitMode)) {
+			try {
+				boolean gone = DomObserverWait.waitUntilElementGone(driver, elementSelector, 
+						waitMillis(timeout));
+				if (!gone) {
+					logger.severe(format("Element selected by %s did not go away in time.", elementSelector.toBySelector()));
+				} else {
+					TestContext.getInstance().increment(WAITED_COUNTER);
+				}
+				return gone;
+			} catch (WebDriverException e) {
+				logger.log(Level.WARNING, "Observer wait failed, falling back to polling.", e);
+			}
+		}
+		
+		long pollMillis = waitMillis(timeout);
+		if (isNetworkIdleWait(driver, waitMode)) {
+			pollMillis = awaitNetworkIdle(driver, pollMillis);
+			if (findElementsNow(driver, elementSelector.toBySelector()).isEmpty()) {
+				TestContext.getInstance().increment(WAITED_COUNTER);
+				return true;
+			}
+		}
 
 		FluentWait<WebDriver> wait = new FluentWait<WebDriver>(driver)
-				.withTimeout(timeout > -1 ? timeout : MAX_WAIT, TimeUnit.SECONDS)
+				.withTimeout(pollMillis, TimeUnit.MILLISECONDS)
 				.pollingEvery(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS).ignoring(NoSuchElementException.class);
 
 		try {
-			return wait.until((WebDriver d) -> d.findElements(elementSelector.toBySelector()).size() == 0);
+			boolean gone = wait.until((WebDriver d) -> d.findElements(elementSelector.toBySelector()).size() == 0);
+			TestContext.getInstance().increment(WAITED_COUNTER);
+			return gone;
 
 		} catch (TimeoutException te) {
 			logger.severe(format("Element selected by %s did not go away in time.", elementSelector.toBySelector()));
@@ -132,6 +286,117 @@ public class SeleniumUtils {
 		return false;
 	}
 
+	/**
+	 * Checks the page as it is, returns the first element selected when it matches given criteria, null otherwise.
+	 * A cached element is checked without looking it up again.
+	 */
+	private static WebElement findElementNow(WebDriver driver, SeleniumSelector elementSelector, Boolean visible, String withText) {
+		ElementCache cache = ElementCache.of(driver);
+		WebElement cached = cache.get(elementSelector);
+		if (cached != null) {
+			try {
+				return matches(cached, visible, withText) ? cached : null;
+			} catch (StaleElementReferenceException e) {
+				cache.evict(elementSelector);
+			}
+		}
+		
+		List<WebElement> elements = findElementsNow(driver, elementSelector.toBySelector());
+		if (elements.isEmpty()) {
+			return null;
+		}
+		cache.put(elementSelector, elements.get(0));
+		try {
+			if (matches(elements.get(0), visible, withText)) {
+				return elements.get(0);
+			}
+		} catch (StaleElementReferenceException e) {
+			//Element went away while checked, waiting decides.
+			cache.evict(elementSelector);
+		}
+		return null;
+	}
+	
+	/**
+	 * Finds an element with {@link #findElementWithTimeout(SeleniumSelector, Boolean, String, int, WaitMode)} and interacts with it.
+	 * An element taken from the {@link ElementCache} may have gone stale since it was found, the interaction is then
+	 * repeated once with the element looked up again.
+	 * 
+	 * @param elementSelector
+	 * @param timeout
+	 * @param waitMode
+	 * @param interaction
+	 * @return false when the element was not found
+	 */
+	public static boolean interact(SeleniumSelector elementSelector, int timeout, WaitMode waitMode, Consumer<WebElement> interaction) {
+		WebElement element = findElementWithTimeout(elementSelector, null, null, timeout, waitMode);
+		if (element == null) {
+			return false;
+		}
+		try {
+			interaction.accept(element);
+		} catch (StaleElementReferenceException e) {
+			ElementCache.of(SeleniumTestContext.getInstance().getDriver()).evict(elementSelector);
+			element = findElementWithTimeout(elementSelector, null, null, timeout, waitMode);
+			if (element == null) {
+				return false;
+			}
+			interaction.accept(element);
+		}
+		return true;
+	}
+	
+	/**
+	 * Finds elements without waiting. When the driver waits implicitly, see {@link SeleniumTestProperties#setImplicitWait(long)},
+	 * the implicit wait is turned off for the lookup and restored afterwards.
+	 */
+	static List<WebElement> findElementsNow(WebDriver driver, By by) {
+		TestProperties properties = TestContext.getInstance().getProperties();
+		long implicitWait = properties instanceof SeleniumTestProperties ? ((SeleniumTestProperties) properties).getImplicitWait() : 0;
+		if (implicitWait <= 0) {
+			return driver.findElements(by);
+		}
+		driver.manage().timeouts().implicitlyWait(0, TimeUnit.MILLISECONDS);
+		try {
+			return driver.findElements(by);
+		} finally {
+			driver.manage().timeouts().implicitlyWait(implicitWait, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	private static boolean matches(WebElement e, Boolean visible, String withText) {
+		return (withText == null || e.getText().contains(withText))
+				&& (visible == null || visible && e.isDisplayed() || !visible && !e.isDisplayed());
+	}
+
+	private static boolean isObserverWait(WebDriver driver, WaitMode waitMode) {
+		WaitMode mode = waitMode != null ? waitMode : SeleniumTestContext.getInstance().getWaitMode();
+		return mode == WaitMode.OBSERVER && driver instanceof JavascriptExecutor;
+	}
+	
+	private static boolean isNetworkIdleWait(WebDriver driver, WaitMode waitMode) {
+		WaitMode mode = waitMode != null ? waitMode : SeleniumTestContext.getInstance().getWaitMode();
+		return mode == WaitMode.NETWORK_IDLE && driver instanceof JavascriptExecutor;
+	}
+	
+	/**
+	 * Waits until the page is idle for {@link NetworkIdleWait#DEFAULT_QUIET_MILLIS}.
+	 * 
+	 * @return milliseconds left of given timeout
+	 */
+	private static long awaitNetworkIdle(WebDriver driver, long timeoutMillis) {
+		long start = System.currentTimeMillis();
+		try {
+			String pending = NetworkIdleWait.waitForIdle(driver, NetworkIdleWait.DEFAULT_QUIET_MILLIS, timeoutMillis);
+			if (pending != null) {
+				logger.warning(format("Page did not become idle in time, %s.", pending));
+			}
+		} catch (WebDriverException e) {
+			logger.log(Level.WARNING, "Network idle wait failed, falling back to polling.", e);
+		}
+		return Math.max(0, timeoutMillis - (System.currentTimeMillis() - start));
+	}
+
 	/**
 	 * Polls through Selenium driver until:
 	 * a) browser URL contains desired String
@@ -144,13 +409,21 @@ public class SeleniumUtils {
 	public static boolean waitUntilUrlContains(final String text, int timeout) {
 
 		final WebDriver driver = SeleniumTestContext.getInstance().getDriver();
+		
+		String url = driver.getCurrentUrl();
+		if (url != null && url.contains(text)) {
+			TestContext.getInstance().increment(IMMEDIATE_COUNTER);
+			return true;
+		}
 
 		FluentWait<WebDriver> wait = new FluentWait<WebDriver>(driver)
-				.withTimeout(timeout > -1 ? timeout : MAX_WAIT, TimeUnit.SECONDS)
+				.withTimeout(waitMillis(timeout), TimeUnit.MILLISECONDS)
 				.pollingEvery(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS).ignoring(NoSuchElementException.class);
 
 		try {
-			return wait.until(ExpectedConditions.urlContains(text));
+			boolean contains = wait.until(ExpectedConditions.urlContains(text));
+			TestContext.getInstance().increment(WAITED_COUNTER);
+			return contains;
 		} catch (TimeoutException te) {
 			logger.severe(format("Url did not contain text %s in time.", text));
 		}
@@ -161,14 +434,27 @@ public class SeleniumUtils {
 	/**
 	 * When called, makes a screenshot and adds it as attachment to currently executed {@link TestStep}.
 	 * 
+	 * When {@link SeleniumTestContext#getSnapshotWriter()} is set, the file is written in background.
+	 * 
 	 * @param name - the name part of the file that will be created.  Note that it has to be unique within
 	 * current step, otherwise one will overwrite another.
 	 */
 	public static void makeSnapshot(String name) {
 
-		WebDriver driver = SeleniumTestContext.getInstance().getDriver();
+		SeleniumTestContext context = SeleniumTestContext.getInstance();
+		WebDriver driver = context.getDriver();
 		if (driver instanceof TakesScreenshot) {
 			try {
+				
+				if (context.getSnapshotWriter() != null) {
+					String base64 = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BASE64);
+					
+					SnapshotAttachment snapshot = new SnapshotAttachment(name, SNAPSHOT_EXTENSION);
+					context.addAttachment(snapshot);
+					
+					context.getSnapshotWriter().writeBase64(base64, snapshot.getFileName());
+					return;
+				}
 
 				File srcFile = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
 				
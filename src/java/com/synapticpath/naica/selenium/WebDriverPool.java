@@ -0,0 +1,368 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * A pool of pre-started Selenium drivers. Starting a browser is expensive, so instead of creating a driver
+ * for every TestCase, the pool starts drivers in the background, leases them to TestCases and resets
+ * a returned driver (windows, cookies, local and session storage) so the next TestCase can reuse it.
+ * 
+ * A driver that cannot be reset is quit and replaced with a new one. A driver that fails to start is tried
+ * {@link #START_ATTEMPTS} times, when no driver can start at all {@link #lease()} fails without waiting for its timeout.
+ * 
+ * Use {@link SeleniumTestContext#setDriverPool(WebDriverPool)} to have a driver leased for every TestCase.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class WebDriverPool {
+	
+	private static final Logger logger = Logger.getLogger(WebDriverPool.class.getName());
+	
+	private static final String CLEAR_STORAGE_SCRIPT = "try { window.localStorage.clear(); } catch (e) {} "
+			+ "try { window.sessionStorage.clear(); } catch (e) {} return true;";
+	
+	private static final String BLANK_PAGE = "about:blank";
+	
+	public static final int START_ATTEMPTS = 3;
+	
+	private static final long START_RETRY_DELAY_MILLIS = 500;
+	
+	//Interval in which a waiting lease checks whether a driver can still come.
+	private static final long LEASE_CHECK_MILLIS = 100;
+	
+	private final Supplier<WebDriver> factory;
+	
+	private final int size;
+	
+	private final BlockingQueue<WebDriver> idle = new LinkedBlockingQueue<WebDriver>();
+	
+	private final Set<WebDriver> drivers = ConcurrentHashMap.newKeySet();
+	
+	private final ExecutorService starter;
+	
+	private int leaseTimeout = 300;
+	
+	private volatile boolean started;
+	
+	private volatile boolean shutdown;
+	
+	private final AtomicLong leaseCount = new AtomicLong();
+	
+	private final AtomicLong leaseWaitNanos = new AtomicLong();
+	
+	private final AtomicLong recycledCount = new AtomicLong();
+	
+	private final AtomicLong replacedCount = new AtomicLong();
+	
+	private final AtomicLong failedStartCount = new AtomicLong();
+	
+	//Drivers being started in the background.
+	private final AtomicInteger pendingStarts = new AtomicInteger();
+	
+	/**
+	 * Creates a pool of given size, drivers are created by given factory.
+	 * 
+	 * @param factory creates a new driver, called from background threads
+	 * @param size number of drivers kept by the pool
+	 */
+	public WebDriverPool(Supplier<WebDriver> factory, int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Pool size has to be a positive number.");
+		}
+		this.factory = factory;
+		this.size = size;
+		this.starter = Executors.newFixedThreadPool(size, (Runnable r) -> {
+			Thread thread = new Thread(r, "naica-driver-starter");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Maximum number of seconds {@link #lease()} waits for a driver, default is 300.
+	 * 
+	 * @param leaseTimeout
+	 * @return
+	 */
+	public WebDriverPool leaseTimeout(int leaseTimeout) {
+		this.leaseTimeout = leaseTimeout;
+		return this;
+	}
+	
+	/**
+	 * Starts all drivers of the pool in the background. Calling this is optional, first lease starts the pool.
+	 * 
+	 * @return
+	 */
+	public synchronized WebDriverPool start() {
+		if (!started) {
+			started = true;
+			for (int i = 0; i < size; i++) {
+				startDriver();
+			}
+		}
+		return this;
+	}
+	
+	private void startDriver() {
+		pendingStarts.incrementAndGet();
+		try {
+			starter.execute(() -> {
+				try {
+					WebDriver driver = startWithRetry();
+					if (driver != null) {
+						drivers.add(driver);
+						idle.add(driver);
+						//Shutdown may have drained idle drivers before this one was added.
+						if (shutdown && idle.remove(driver)) {
+							drivers.remove(driver);
+							quit(driver);
+						}
+					}
+				} finally {
+					pendingStarts.decrementAndGet();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			pendingStarts.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * Calls the factory up to {@link #START_ATTEMPTS} times.
+	 * 
+	 * @return the driver, null when it could not be started or the pool has been shut down
+	 */
+	private WebDriver startWithRetry() {
+		for (int attempt = 1; attempt <= START_ATTEMPTS && !shutdown; attempt++) {
+			try {
+				return factory.get();
+			} catch (RuntimeException e) {
+				logger.log(Level.WARNING, format("Failed to start a driver, attempt %s of %s.", attempt, START_ATTEMPTS), e);
+			}
+			try {
+				Thread.sleep(START_RETRY_DELAY_MILLIS * attempt);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+		if (!shutdown) {
+			failedStartCount.incrementAndGet();
+			logger.severe(format("Driver could not be started in %s attempts, the pool has %s drivers.", START_ATTEMPTS, drivers.size()));
+		}
+		return null;
+	}
+	
+	/**
+	 * Leases an idle driver, waits until one becomes available. Fails when none is started, being started
+	 * or leased, as then no driver can become available.
+	 * 
+	 * @return
+	 */
+	public WebDriver lease() {
+		if (shutdown) {
+			throw new IllegalStateException("WebDriverPool has been shut down.");
+		}
+		start();
+		
+		long begin = System.nanoTime();
+		try {
+			long deadline = begin + TimeUnit.SECONDS.toNanos(leaseTimeout);
+			WebDriver driver = idle.poll();
+			while (driver == null) {
+				if (drivers.isEmpty() && pendingStarts.get() == 0) {
+					throw new IllegalStateException(format("No driver can become available, %s drivers failed to start.", getFailedStartCount()));
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					throw new IllegalStateException(format("No driver became available in %s seconds.", leaseTimeout));
+				}
+				driver = idle.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(LEASE_CHECK_MILLIS)), TimeUnit.NANOSECONDS);
+			}
+			leaseCount.incrementAndGet();
+			return driver;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a driver.", e);
+		} finally {
+			leaseWaitNanos.addAndGet(System.nanoTime() - begin);
+		}
+	}
+	
+	/**
+	 * Returns a leased driver to the pool. The driver is reset first, when that fails it is replaced.
+	 * 
+	 * @param driver
+	 */
+	public void release(WebDriver driver) {
+		if (shutdown || !drivers.contains(driver)) {
+			quit(driver);
+			return;
+		}
+		
+		try {
+			reset(driver);
+			recycledCount.incrementAndGet();
+			idle.add(driver);
+		} catch (RuntimeException e) {
+			logger.log(Level.WARNING, "Failed to reset driver, replacing it.", e);
+			discard(driver);
+		}
+	}
+	
+	/**
+	 * Quits given leased driver and starts a new one in its place.
+	 * 
+	 * @param driver
+	 */
+	public void discard(WebDriver driver) {
+		//Counted as pending while removed, so that a waiting lease does not give up in between.
+		pendingStarts.incrementAndGet();
+		try {
+			if (drivers.remove(driver)) {
+				replacedCount.incrementAndGet();
+				startDriver();
+			}
+		} finally {
+			pendingStarts.decrementAndGet();
+		}
+		quit(driver);
+	}
+	
+	/**
+	 * Brings the driver to the state of a freshly started one: closes all windows but one, clears
+	 * local and session storage, deletes cookies and opens a blank page.
+	 * 
+	 * Note that Selenium can only delete cookies of the domain that is currently open.
+	 * 
+	 * @param driver
+	 */
+	protected void reset(WebDriver driver) {
+		
+		List<String> handles = new ArrayList<String>(driver.getWindowHandles());
+		for (int i = 1; i < handles.size(); i++) {
+			driver.switchTo().window(handles.get(i)).close();
+		}
+		driver.switchTo().window(handles.get(0));
+		
+		if (driver instanceof JavascriptExecutor) {
+			((JavascriptExecutor) driver).executeScript(CLEAR_STORAGE_SCRIPT);
+		}
+		driver.manage().deleteAllCookies();
+		driver.get(BLANK_PAGE);
+	}
+	
+	/**
+	 * Quits all drivers, leased drivers are quit when they are released.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		starter.shutdownNow();
+		
+		WebDriver driver;
+		while ((driver = idle.poll()) != null) {
+			drivers.remove(driver);
+			quit(driver);
+		}
+		
+		logger.info(format("WebDriverPool shut down, leases: %s, average lease wait: %s ms, recycled: %s, replaced: %s.", 
+				getLeaseCount(), getAverageLeaseWaitMillis(), getRecycledCount(), getReplacedCount()));
+	}
+	
+	private void quit(WebDriver driver) {
+		try {
+			driver.quit();
+		} catch (RuntimeException e) {
+			logger.log(Level.WARNING, "Failed to quit driver.", e);
+		}
+	}
+	
+	public int getSize() {
+		return size;
+	}
+	
+	/**
+	 * Number of started drivers that are not leased.
+	 * @return
+	 */
+	public int getIdleCount() {
+		return idle.size();
+	}
+	
+	public long getLeaseCount() {
+		return leaseCount.get();
+	}
+	
+	/**
+	 * Total time spent by callers waiting in {@link #lease()}.
+	 * @return
+	 */
+	public long getTotalLeaseWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(leaseWaitNanos.get());
+	}
+	
+	public long getAverageLeaseWaitMillis() {
+		long leases = leaseCount.get();
+		return leases == 0 ? 0 : getTotalLeaseWaitMillis() / leases;
+	}
+	
+	/**
+	 * Number of times a released driver was reset and put back to the pool.
+	 * @return
+	 */
+	public long getRecycledCount() {
+		return recycledCount.get();
+	}
+	
+	/**
+	 * Number of times a driver was quit and replaced with a new one.
+	 * @return
+	 */
+	public long getReplacedCount() {
+		return replacedCount.get();
+	}
+	
+	/**
+	 * Number of drivers that could not be started in {@link #START_ATTEMPTS} attempts.
+	 * @return
+	 */
+	public long getFailedStartCount() {
+		return failedStartCount.get();
+	}
+}
@@ -0,0 +1,135 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import static java.lang.String.format;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+import org.openqa.selenium.WebDriver;
+
+import com.synapticpath.naica.TestContext;
+import com.synapticpath.naica.actions.Action;
+
+/**
+ * Follows windows opened by actions, such as popups opened by a click. The tracker remembers window handles
+ * it has seen and switches to a window only when an action opened a new one. Handles are checked only after
+ * actions that may open a window, see {@link SeleniumAction#mayOpenWindow()}, every check costs a round trip
+ * and is counted, see {@link #CHECK_COUNTER}.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class WindowTracker {
+	
+	private static final Logger logger = Logger.getLogger(WindowTracker.class.getName());
+	
+	/**
+	 * Counter of window handle checks, see {@link TestContext#increment(String)}.
+	 */
+	public static final String CHECK_COUNTER = "window handle checks";
+	
+	private static final Map<WebDriver, WindowTracker> trackers = Collections.synchronizedMap(new WeakHashMap<WebDriver, WindowTracker>());
+	
+	//Null until the handles of the driver were seen for the first time.
+	private Set<String> known;
+	
+	//True when windows may have been opened since known was read, see invalidate().
+	private boolean stale;
+	
+	private WindowTracker() {
+	}
+	
+	/**
+	 * Returns the tracker of given driver.
+	 * @param driver
+	 * @return
+	 */
+	public static WindowTracker of(WebDriver driver) {
+		return trackers.computeIfAbsent(driver, d -> new WindowTracker());
+	}
+	
+	/**
+	 * Returns true when given action may open a window, actions other than {@link SeleniumAction} may.
+	 * @param action
+	 * @return
+	 */
+	public static boolean mayOpenWindow(Action action) {
+		return !(action instanceof SeleniumAction) || ((SeleniumAction) action).mayOpenWindow();
+	}
+	
+	/**
+	 * Remembers windows that are open before an action, so that they are not taken for windows the action opened.
+	 * The driver is asked only the first time and after {@link #invalidate()}, otherwise handles seen after
+	 * the last tracked action are still current.
+	 * 
+	 * @param driver
+	 */
+	public synchronized void beforeAction(WebDriver driver) {
+		if (known == null || stale) {
+			known = handles(driver);
+			stale = false;
+		}
+	}
+	
+	/**
+	 * Tells the tracker that windows may have been opened without it seeing them, e.g. by an action that was
+	 * not tracked. Handles are read again before the next tracked action.
+	 */
+	public synchronized void invalidate() {
+		stale = true;
+	}
+	
+	/**
+	 * Switches to the window an action opened, when there are more, to the last one.
+	 * 
+	 * @param driver
+	 * @return true when the driver switched to a new window
+	 */
+	public synchronized boolean afterAction(WebDriver driver) {
+		stale = false;
+		Set<String> handles = handles(driver);
+		String opened = null;
+		for (String handle : handles) {
+			if (known == null || !known.contains(handle)) {
+				opened = handle;
+			}
+		}
+		//Without handles seen before the action, only a window other than the first one counts as opened.
+		if (known == null && opened != null && opened.equals(handles.iterator().next())) {
+			opened = null;
+		}
+		known = handles;
+		
+		if (opened != null) {
+			logger.info(format("Switching to window %s opened by last action.", opened));
+			ElementCache.of(driver).invalidate();
+			driver.switchTo().window(opened);
+			return true;
+		}
+		return false;
+	}
+	
+	private static Set<String> handles(WebDriver driver) {
+		TestContext.getInstance().increment(CHECK_COUNTER);
+		return new LinkedHashSet<String>(driver.getWindowHandles());
+	}
+}
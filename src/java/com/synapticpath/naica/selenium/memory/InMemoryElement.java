@@ -0,0 +1,374 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium.memory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.Keys;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+/**
+ * An element of a virtual page shown by {@link InMemoryWebDriver}. Elements are set up through fluent
+ * methods, e.g. driver.addElement("#name").tagName("input").appearAfter(200).
+ * 
+ * Typing follows what a browser would do with the keys SeleniumTextAction sends: Ctrl+A selects 
+ * the value so that following text replaces it, Backspace deletes a character, Enter triggers
+ * the onEnter handler, other special keys are ignored.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class InMemoryElement implements WebElement {
+	
+	private final InMemoryWebDriver driver;
+	
+	private final By by;
+	
+	private final long createdAt = System.nanoTime();
+	
+	private volatile long appearAfterNanos;
+	
+	private volatile long removeAfterNanos = Long.MAX_VALUE;
+	
+	private volatile long displayAfterNanos;
+	
+	private volatile boolean displayed = true;
+	
+	private volatile boolean removed;
+	
+	private volatile boolean selected;
+	
+	private volatile boolean valueSelected;
+	
+	private String tagName = "div";
+	
+	private String text = "";
+	
+	private String value = "";
+	
+	private final Map<String, String> attributes = new LinkedHashMap<String, String>();
+	
+	private Consumer<InMemoryElement> onClick;
+	
+	private Consumer<InMemoryElement> onEnter;
+	
+	InMemoryElement(InMemoryWebDriver driver, By by) {
+		this.driver = driver;
+		this.by = by;
+	}
+	
+	public InMemoryElement tagName(String tagName) {
+		this.tagName = tagName;
+		return this;
+	}
+	
+	/**
+	 * Sets visible text of the element.
+	 * @param text
+	 * @return this element
+	 */
+	public InMemoryElement text(String text) {
+		this.text = text;
+		return this;
+	}
+	
+	/**
+	 * Sets the value of an input element.
+	 * @param value
+	 * @return this element
+	 */
+	public InMemoryElement value(String value) {
+		this.value = value;
+		return this;
+	}
+	
+	public InMemoryElement attribute(String name, String value) {
+		attributes.put(name, value);
+		return this;
+	}
+	
+	public InMemoryElement displayed(boolean displayed) {
+		this.displayed = displayed;
+		return this;
+	}
+	
+	public InMemoryElement selected(boolean selected) {
+		this.selected = selected;
+		return this;
+	}
+	
+	/**
+	 * The element can only be found when given number of milliseconds has passed since it was added.
+	 * @param millis
+	 * @return this element
+	 */
+	public InMemoryElement appearAfter(long millis) {
+		this.appearAfterNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+		return this;
+	}
+	
+	/**
+	 * The element goes away when given number of milliseconds has passed since it was added.
+	 * @param millis
+	 * @return this element
+	 */
+	public InMemoryElement removeAfter(long millis) {
+		this.removeAfterNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+		return this;
+	}
+	
+	/**
+	 * The element is hidden until given number of milliseconds has passed since it was added.
+	 * @param millis
+	 * @return this element
+	 */
+	public InMemoryElement displayAfter(long millis) {
+		this.displayAfterNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+		return this;
+	}
+	
+	/**
+	 * Handler called when the element is clicked, e.g. to navigate to another page or to open a window.
+	 * @param onClick
+	 * @return this element
+	 */
+	public InMemoryElement onClick(Consumer<InMemoryElement> onClick) {
+		this.onClick = onClick;
+		return this;
+	}
+	
+	/**
+	 * Handler called when Enter is typed into the element or the element is submitted.
+	 * @param onEnter
+	 * @return this element
+	 */
+	public InMemoryElement onEnter(Consumer<InMemoryElement> onEnter) {
+		this.onEnter = onEnter;
+		return this;
+	}
+	
+	public InMemoryWebDriver getDriver() {
+		return driver;
+	}
+	
+	public By getBy() {
+		return by;
+	}
+	
+	/**
+	 * Current value of an input element, does not count as a command.
+	 * @return
+	 */
+	public String getValue() {
+		return value;
+	}
+	
+	/**
+	 * Returns true when the element is part of the page, that is it has appeared and did not go away yet.
+	 * @return
+	 */
+	public boolean isPresent() {
+		long age = System.nanoTime() - createdAt;
+		return !removed && age >= appearAfterNanos && age < removeAfterNanos;
+	}
+	
+	/**
+	 * Visible text of the element, does not count as a command.
+	 * @return
+	 */
+	String getShownText() {
+		return displayed && System.nanoTime() - createdAt >= displayAfterNanos ? text : "";
+	}
+	
+	void remove() {
+		removed = true;
+	}
+	
+	/**
+	 * @return true for input and textarea elements, whose value can be set by a script
+	 */
+	boolean isTextField() {
+		return "input".equalsIgnoreCase(tagName) || "textarea".equalsIgnoreCase(tagName);
+	}
+	
+	private void command() {
+		driver.command();
+		if (!isPresent()) {
+			throw new StaleElementReferenceException("Element found by " + by + " is no longer attached to the page.");
+		}
+	}
+
+	@Override
+	public void click() {
+		command();
+		if (onClick != null) {
+			onClick.accept(this);
+		}
+	}
+
+	@Override
+	public void submit() {
+		command();
+		if (onEnter != null) {
+			onEnter.accept(this);
+		}
+	}
+
+	@Override
+	public void sendKeys(CharSequence... keysToSend) {
+		command();
+		boolean control = false;
+		for (CharSequence keys : keysToSend) {
+			driver.type(keys.length());
+			for (int i = 0; i < keys.length(); i++) {
+				char c = keys.charAt(i);
+				if (c == Keys.CONTROL.charAt(0) || c == Keys.LEFT_CONTROL.charAt(0)) {
+					control = true;
+				} else if (c == Keys.NULL.charAt(0)) {
+					control = false;
+				} else if (control && (c == 'a' || c == 'A')) {
+					valueSelected = true;
+				} else if (c == Keys.BACK_SPACE.charAt(0)) {
+					value = valueSelected || value.isEmpty() ? "" : value.substring(0, value.length() - 1);
+					valueSelected = false;
+				} else if (c == Keys.RETURN.charAt(0) || c == Keys.ENTER.charAt(0)) {
+					if (onEnter != null) {
+						onEnter.accept(this);
+					}
+				} else if (c >= '\uE000' && c <= '\uF8FF') {
+					//Other special keys, sent as characters of the private use area, do not change the value.
+				} else {
+					value = (valueSelected ? "" : value) + c;
+					valueSelected = false;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		command();
+		value = "";
+		valueSelected = false;
+	}
+
+	@Override
+	public String getTagName() {
+		command();
+		return tagName;
+	}
+
+	@Override
+	public String getAttribute(String name) {
+		command();
+		if ("value".equals(name)) {
+			return value;
+		}
+		return attributes.get(name);
+	}
+
+	@Override
+	public boolean isSelected() {
+		command();
+		return selected;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		command();
+		return true;
+	}
+
+	@Override
+	public String getText() {
+		return isDisplayed() ? text : "";
+	}
+
+	/**
+	 * Only the parent of the element, By.xpath(".."), can be found, any other element is looked up on the page.
+	 */
+	@Override
+	public List<WebElement> findElements(By by) {
+		command();
+		if (By.xpath("..").equals(by)) {
+			List<WebElement> parent = new ArrayList<WebElement>();
+			parent.add(new InMemoryElement(driver, by).tagName("body"));
+			return parent;
+		}
+		return driver.findElements(by);
+	}
+
+	@Override
+	public WebElement findElement(By by) {
+		List<WebElement> found = findElements(by);
+		if (found.isEmpty()) {
+			throw new NoSuchElementException("Cannot locate an element using " + by);
+		}
+		return found.get(0);
+	}
+
+	@Override
+	public boolean isDisplayed() {
+		command();
+		return displayed && System.nanoTime() - createdAt >= displayAfterNanos;
+	}
+
+	@Override
+	public Point getLocation() {
+		command();
+		return new Point(0, 0);
+	}
+
+	@Override
+	public Dimension getSize() {
+		command();
+		return isDisplayed() ? new Dimension(100, 20) : new Dimension(0, 0);
+	}
+
+	@Override
+	public Rectangle getRect() {
+		return new Rectangle(getLocation(), getSize());
+	}
+
+	@Override
+	public String getCssValue(String propertyName) {
+		command();
+		return "display".equals(propertyName) && !isDisplayed() ? "none" : "";
+	}
+
+	@Override
+	public <X> X getScreenshotAs(OutputType<X> target) throws WebDriverException {
+		return driver.getScreenshotAs(target);
+	}
+	
+	@Override
+	public String toString() {
+		return "InMemoryElement " + by;
+	}
+}
@@ -0,0 +1,898 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium.memory;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoAlertPresentException;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchFrameException;
+import org.openqa.selenium.NoSuchWindowException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.logging.Logs;
+
+/**
+ * A scriptable WebDriver that runs entirely in memory, no browser is involved. Use it to measure overhead of the
+ * framework itself and to run tests that do not depend on a browser or network.
+ * 
+ * Every window holds a virtual page, that is an url and {@link InMemoryElement}s keyed by the selector
+ * that finds them. Pages are set up by handlers registered per url, see {@link #page(String, Consumer)}, elements
+ * can appear or go away after a delay and react on clicks and typed text. Scripts are answered by
+ * a {@link ScriptHandler}, screenshots are a fixed png image.
+ * 
+ * Every command can be delayed to simulate a remote browser, see {@link #latency(long, long)}, and typing
+ * can be delayed per key, see {@link #keystrokeDelay(long)}. Background requests of the page are simulated
+ * by {@link #request(long)}.
+ * 
+ * <pre>
+ * InMemoryWebDriver driver = new InMemoryWebDriver()
+ *     .page("http://example.com", d -&gt; d.addElement("a.next").onClick(e -&gt; d.get("http://example.com/next")))
+ *     .page("http://example.com/next", d -&gt; d.addElement("#content").text("Next page").appearAfter(500));
+ * </pre>
+ * 
+ * The driver is meant to be used by one thread at a time, as are real drivers.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class InMemoryWebDriver implements WebDriver, JavascriptExecutor, TakesScreenshot {
+	
+	/**
+	 * Answers scripts executed through the driver.
+	 */
+	@FunctionalInterface
+	public interface ScriptHandler {
+		
+		/**
+		 * @param driver
+		 * @param script
+		 * @param args
+		 * @return result of the script
+		 * @throws WebDriverException when the script fails
+		 */
+		Object execute(InMemoryWebDriver driver, String script, Object [] args);
+	}
+	
+	//1x1 pixel png
+	private static final String SCREENSHOT_BASE64 = "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==";
+	
+	private static final String BLANK_PAGE = "about:blank";
+	
+	private final AtomicInteger handleSequence = new AtomicInteger();
+	
+	//Page shown in every open window by handle
+	private final Map<String, Page> windows = Collections.synchronizedMap(new LinkedHashMap<String, Page>());
+	
+	//Handlers that set up a page by url
+	private final Map<String, Consumer<InMemoryWebDriver>> pages = Collections.synchronizedMap(new LinkedHashMap<String, Consumer<InMemoryWebDriver>>());
+	
+	private final Set<Cookie> cookies = Collections.synchronizedSet(new LinkedHashSet<Cookie>());
+	
+	private final Map<String, String> localStorage = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+	
+	private final Map<String, String> sessionStorage = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+	
+	private ScriptHandler scriptHandler = InMemoryWebDriver::defaultScript;
+	
+	private volatile long minLatencyMillis;
+	
+	private volatile long maxLatencyMillis;
+	
+	private volatile long keystrokeDelayMicros;
+	
+	private volatile long implicitWaitMillis;
+	
+	//Values of System.nanoTime() when simulated requests end, see request(long)
+	private final List<Long> requestEnds = Collections.synchronizedList(new ArrayList<Long>());
+	
+	private final AtomicLong commandCount = new AtomicLong();
+	
+	private final AtomicLong screenshotCount = new AtomicLong();
+	
+	private final AtomicLong keystrokeCount = new AtomicLong();
+	
+	private volatile String currentWindow;
+	
+	private volatile boolean quit;
+	
+	public InMemoryWebDriver() {
+		currentWindow = openWindow(BLANK_PAGE);
+	}
+	
+	/**
+	 * Registers a handler that sets up the page when given url is opened, typically by adding elements.
+	 * 
+	 * @param url
+	 * @param setup
+	 * @return this driver
+	 */
+	public InMemoryWebDriver page(String url, Consumer<InMemoryWebDriver> setup) {
+		pages.put(url, setup);
+		return this;
+	}
+	
+	/**
+	 * Sets a handler that answers scripts, by default only scripts that blur an element or clear storage
+	 * are answered, see {@link #defaultScript(InMemoryWebDriver, String, Object[])}.
+	 * 
+	 * @param scriptHandler
+	 * @return this driver
+	 */
+	public InMemoryWebDriver scriptHandler(ScriptHandler scriptHandler) {
+		this.scriptHandler = scriptHandler;
+		return this;
+	}
+	
+	/**
+	 * Delays every command by given number of milliseconds.
+	 * 
+	 * @param millis
+	 * @return this driver
+	 */
+	public InMemoryWebDriver latency(long millis) {
+		return latency(millis, millis);
+	}
+	
+	/**
+	 * Delays every command by a random number of milliseconds between min and max.
+	 * 
+	 * @param minMillis
+	 * @param maxMillis
+	 * @return this driver
+	 */
+	public InMemoryWebDriver latency(long minMillis, long maxMillis) {
+		if (minMillis < 0 || maxMillis < minMillis) {
+			throw new IllegalArgumentException("Latency has to be a non-negative range.");
+		}
+		this.minLatencyMillis = minMillis;
+		this.maxLatencyMillis = maxMillis;
+		return this;
+	}
+	
+	/**
+	 * Delays typing by given number of microseconds per key, as browsers dispatch events of every key one by one.
+	 * 
+	 * @param micros
+	 * @return this driver
+	 */
+	public InMemoryWebDriver keystrokeDelay(long micros) {
+		if (micros < 0) {
+			throw new IllegalArgumentException("Keystroke delay cannot be negative.");
+		}
+		this.keystrokeDelayMicros = micros;
+		return this;
+	}
+	
+	/**
+	 * Sleeps for the time it takes to type given number of keys, see {@link #keystrokeDelay(long)}.
+	 */
+	void type(int keys) {
+		keystrokeCount.addAndGet(keys);
+		long micros = keystrokeDelayMicros * keys;
+		if (micros > 0) {
+			try {
+				TimeUnit.MICROSECONDS.sleep(micros);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new WebDriverException("Interrupted while typing.", e);
+			}
+		}
+	}
+	
+	/**
+	 * Opens a new window with given url, as if the page opened a popup. Current window does not change.
+	 * 
+	 * @param url
+	 * @return handle of the new window
+	 */
+	public String openWindow(String url) {
+		String handle = "window-" + handleSequence.incrementAndGet();
+		Page page = new Page(url);
+		windows.put(handle, page);
+		setUp(page, handle);
+		return handle;
+	}
+	
+	/**
+	 * Adds an element to the page in current window, it will be found by given css selector.
+	 * 
+	 * @param css
+	 * @return the element
+	 */
+	public InMemoryElement addElement(String css) {
+		return addElement(By.cssSelector(css));
+	}
+	
+	/**
+	 * Adds an element to the page in current window, it will be found by given selector.
+	 * An element previously found by the same selector is replaced.
+	 * 
+	 * @param by
+	 * @return the element
+	 */
+	public InMemoryElement addElement(By by) {
+		InMemoryElement element = new InMemoryElement(this, by);
+		removeElement(by);
+		currentPage().elements.put(by.toString(), element);
+		return element;
+	}
+	
+	/**
+	 * Adds elements with given texts to the page in current window, all of them are found by given css selector,
+	 * such as rows of a table. Elements previously found by the same selector are replaced.
+	 * 
+	 * @param css
+	 * @param texts
+	 * @return the elements
+	 */
+	public List<InMemoryElement> addElements(String css, String ... texts) {
+		By by = By.cssSelector(css);
+		List<InMemoryElement> elements = new ArrayList<InMemoryElement>();
+		for (String text : texts) {
+			elements.add(new InMemoryElement(this, by).text(text));
+		}
+		removeElement(by);
+		currentPage().lists.put(by.toString(), elements);
+		return elements;
+	}
+	
+	/**
+	 * Removes element found by given css selector from the page in current window.
+	 * @param css
+	 */
+	public void removeElement(String css) {
+		removeElement(By.cssSelector(css));
+	}
+	
+	/**
+	 * Removes element or elements found by given selector from the page in current window.
+	 * @param by
+	 */
+	public void removeElement(By by) {
+		InMemoryElement element = currentPage().elements.remove(by.toString());
+		if (element != null) {
+			element.remove();
+		}
+		List<InMemoryElement> list = currentPage().lists.remove(by.toString());
+		if (list != null) {
+			list.forEach(InMemoryElement::remove);
+		}
+	}
+	
+	/**
+	 * Returns element found by given selector regardless whether it is present, does not count as a command.
+	 * 
+	 * @param by
+	 * @return the element or null
+	 */
+	public InMemoryElement getElement(By by) {
+		return currentPage().elements.get(by.toString());
+	}
+	
+	public Map<String, String> getLocalStorage() {
+		return localStorage;
+	}
+	
+	public Map<String, String> getSessionStorage() {
+		return sessionStorage;
+	}
+	
+	/**
+	 * Number of commands executed, including commands of elements.
+	 * @return
+	 */
+	/**
+	 * Simulates a request of the page that is in flight for given number of milliseconds, e.g. started by
+	 * a click handler. Network idle waits see it whether or not their tracker was installed before.
+	 * 
+	 * @param millis
+	 * @return this driver
+	 */
+	public InMemoryWebDriver request(long millis) {
+		requestEnds.add(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+		return this;
+	}
+	
+	public long getCommandCount() {
+		return commandCount.get();
+	}
+	
+	public long getScreenshotCount() {
+		return screenshotCount.get();
+	}
+	
+	/**
+	 * @return number of keys typed into elements of this driver, special keys included
+	 */
+	public long getKeystrokeCount() {
+		return keystrokeCount.get();
+	}
+	
+	/**
+	 * @return implicit wait last set on this driver in milliseconds, the driver does not wait for elements
+	 */
+	public long getImplicitWait() {
+		return implicitWaitMillis;
+	}
+	
+	/**
+	 * Called at the beginning of every command, checks the driver is open and applies latency.
+	 * Like a real driver, it stays usable after the current window is closed as long as other windows remain.
+	 */
+	protected void command() {
+		if (quit || windows.isEmpty()) {
+			throw new NoSuchWindowException("Driver has been closed.");
+		}
+		commandCount.incrementAndGet();
+		
+		long latency = minLatencyMillis == maxLatencyMillis ? minLatencyMillis 
+				: ThreadLocalRandom.current().nextLong(minLatencyMillis, maxLatencyMillis + 1);
+		if (latency > 0) {
+			try {
+				Thread.sleep(latency);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new WebDriverException("Interrupted while executing command.", e);
+			}
+		}
+	}
+	
+	private Page currentPage() {
+		Page page = currentWindow != null ? windows.get(currentWindow) : null;
+		if (page == null) {
+			throw new NoSuchWindowException("Driver has been closed.");
+		}
+		return page;
+	}
+	
+	/**
+	 * Runs page setup with given window as current one.
+	 */
+	private void setUp(Page page, String handle) {
+		Consumer<InMemoryWebDriver> setup = pages.get(page.url);
+		if (setup != null) {
+			String current = currentWindow;
+			currentWindow = handle;
+			try {
+				setup.accept(this);
+			} finally {
+				if (windows.containsKey(current)) {
+					currentWindow = current;
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void get(String url) {
+		command();
+		Page previous = windows.put(currentWindow, new Page(url));
+		if (previous != null) {
+			previous.unload();
+		}
+		setUp(currentPage(), currentWindow);
+	}
+
+	@Override
+	public String getCurrentUrl() {
+		command();
+		return currentPage().url;
+	}
+
+	@Override
+	public String getTitle() {
+		return getCurrentUrl();
+	}
+
+	@Override
+	public List<WebElement> findElements(By by) {
+		command();
+		List<WebElement> found = new ArrayList<WebElement>();
+		for (InMemoryElement element : currentPage().find(by)) {
+			if (element.isPresent()) {
+				found.add(element);
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public WebElement findElement(By by) {
+		List<WebElement> found = findElements(by);
+		if (found.isEmpty()) {
+			throw new NoSuchElementException("Cannot locate an element using " + by);
+		}
+		return found.get(0);
+	}
+
+	@Override
+	public String getPageSource() {
+		command();
+		return "<html><body></body></html>";
+	}
+
+	@Override
+	public void close() {
+		command();
+		Page page = windows.remove(currentWindow);
+		if (page != null) {
+			page.unload();
+		}
+		currentWindow = null;
+	}
+
+	/**
+	 * Returns true when the driver has been quit, does not count as a command.
+	 * @return
+	 */
+	public boolean isQuit() {
+		return quit;
+	}
+
+	@Override
+	public void quit() {
+		quit = true;
+		synchronized (windows) {
+			windows.values().forEach(Page::unload);
+			windows.clear();
+		}
+	}
+
+	@Override
+	public Set<String> getWindowHandles() {
+		command();
+		synchronized (windows) {
+			return new LinkedHashSet<String>(windows.keySet());
+		}
+	}
+
+	@Override
+	public String getWindowHandle() {
+		command();
+		return currentWindow;
+	}
+
+	@Override
+	public TargetLocator switchTo() {
+		return new InMemoryTargetLocator();
+	}
+
+	@Override
+	public Navigation navigate() {
+		return new InMemoryNavigation();
+	}
+
+	@Override
+	public Options manage() {
+		return new InMemoryOptions();
+	}
+	
+	@Override
+	public <X> X getScreenshotAs(OutputType<X> target) throws WebDriverException {
+		command();
+		screenshotCount.incrementAndGet();
+		return target.convertFromPngBytes(Base64.getDecoder().decode(SCREENSHOT_BASE64));
+	}
+
+	@Override
+	public Object executeScript(String script, Object... args) {
+		command();
+		return scriptHandler.execute(this, script, args);
+	}
+
+	@Override
+	public Object executeAsyncScript(String script, Object... args) {
+		command();
+		return scriptHandler.execute(this, script, args);
+	}
+	
+	/**
+	 * Answers scripts that blur an element, clear, capture or restore local and session storage, set the value of an element
+	 * and dispatch its input events, fill a form or collect elements, other scripts are not supported so that callers fall back
+	 * to plain WebDriver commands.
+	 * 
+	 * @param driver
+	 * @param script
+	 * @param args
+	 * @return result of supported scripts
+	 * @throws UnsupportedCommandException for other scripts
+	 */
+	public static Object defaultScript(InMemoryWebDriver driver, String script, Object [] args) {
+		if (script.contains("localStorage.clear()")) {
+			driver.localStorage.clear();
+			driver.sessionStorage.clear();
+			return true;
+		}
+		if (script.contains("naicaFill(") && args.length > 0 && args[0] instanceof List) {
+			return fillForm(driver, (List<?>) args[0]);
+		}
+		if (script.contains("naicaDumpStorage(")) {
+			return Arrays.asList(new LinkedHashMap<String, String>(driver.localStorage), new LinkedHashMap<String, String>(driver.sessionStorage));
+		}
+		if (script.contains("naicaFillStorage(") && args.length > 1) {
+			fillStorage(driver.localStorage, (Map<?, ?>) args[0]);
+			fillStorage(driver.sessionStorage, (Map<?, ?>) args[1]);
+			return true;
+		}
+		if (script.contains("naicaWaitIdle(") && args.length > 1) {
+			return waitForIdle(driver, ((Number) args[0]).longValue(), ((Number) args[1]).longValue());
+		}
+		if (script.contains("__naicaNetwork")) {
+			driver.currentPage().track();
+			return true;
+		}
+		if (script.contains("naicaCollect(") && args.length > 2) {
+			return collect(driver, args[0] != null ? By.cssSelector((String) args[0]) : By.xpath((String) args[1]), Boolean.TRUE.equals(args[2]));
+		}
+		if (script.contains(".blur()")) {
+			return true;
+		}
+		if (script.contains("dispatchEvent(new Event('input'") && args.length > 2 && args[0] instanceof InMemoryElement) {
+			InMemoryElement element = (InMemoryElement) args[0];
+			if (!element.isTextField()) {
+				return false;
+			}
+			element.value(Boolean.TRUE.equals(args[2]) ? String.valueOf(args[1]) : element.getValue() + args[1]);
+			return true;
+		}
+		throw new UnsupportedCommandException("Script is not supported by InMemoryWebDriver, set a ScriptHandler.");
+	}
+	
+	/**
+	 * Answers the script of {@link com.synapticpath.naica.selenium.SeleniumFormAction}, fields are looked up
+	 * by their css or xpath, checks set the selected state and selects set the value.
+	 */
+	private static List<String> fillForm(InMemoryWebDriver driver, List<?> fields) {
+		List<String> errors = new ArrayList<String>();
+		for (Object spec : fields) {
+			List<?> field = (List<?>) spec;
+			try {
+				InMemoryElement element = driver.getElement(field.get(1) != null ? By.cssSelector((String) field.get(1)) : By.xpath((String) field.get(2)));
+				if (element == null || !element.isPresent()) {
+					errors.add("not found");
+				} else if ("check".equals(field.get(0))) {
+					element.selected(Boolean.TRUE.equals(field.get(3)));
+					errors.add(null);
+				} else {
+					element.value(String.valueOf(field.get(3)));
+					errors.add(null);
+				}
+			} catch (RuntimeException e) {
+				//Like the script, a field that throws gets the error and the others are still filled.
+				errors.add(String.valueOf(e.getMessage()));
+			}
+		}
+		return errors;
+	}
+	
+	/**
+	 * Answers the script of {@link com.synapticpath.naica.selenium.NetworkIdleWait}, sleeps until no simulated request
+	 * has been in flight for the quiet window since the tracker was installed.
+	 */
+	private static String waitForIdle(InMemoryWebDriver driver, long quietMillis, long timeoutMillis) {
+		long since = driver.currentPage().track();
+		long timeout = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (true) {
+			long now = System.nanoTime();
+			long last = since;
+			int pending = 0;
+			synchronized (driver.requestEnds) {
+				for (long end : driver.requestEnds) {
+					if (end - now > 0) {
+						pending++;
+					}
+					last = end - last > 0 ? end : last;
+				}
+			}
+			long idleAt = last + TimeUnit.MILLISECONDS.toNanos(quietMillis);
+			if (idleAt - now <= 0) {
+				return null;
+			}
+			if (timeout - now <= 0) {
+				return format("%d requests and 0 timers pending", pending);
+			}
+			try {
+				TimeUnit.NANOSECONDS.sleep(Math.min(idleAt, timeout) - now);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new WebDriverException("Interrupted while waiting for network idle.", e);
+			}
+		}
+	}
+	
+	private static void fillStorage(Map<String, String> storage, Map<?, ?> items) {
+		storage.clear();
+		items.forEach((key, value) -> storage.put(String.valueOf(key), String.valueOf(value)));
+	}
+	
+	/**
+	 * Answers the script of {@link com.synapticpath.naica.selenium.SeleniumCollectionCondition}, returns texts
+	 * of all present elements or their number.
+	 */
+	private static Object collect(InMemoryWebDriver driver, By by, boolean withTexts) {
+		List<String> texts = new ArrayList<String>();
+		for (InMemoryElement element : driver.currentPage().find(by)) {
+			if (element.isPresent()) {
+				texts.add(element.getShownText().trim());
+			}
+		}
+		return withTexts ? texts : Long.valueOf(texts.size());
+	}
+	
+	/**
+	 * Url and elements shown in a window.
+	 */
+	private static class Page {
+		
+		private final String url;
+		
+		private final Map<String, InMemoryElement> elements = Collections.synchronizedMap(new LinkedHashMap<String, InMemoryElement>());
+		
+		//Elements found together by one selector, see addElements(String, String...)
+		private final Map<String, List<InMemoryElement>> lists = Collections.synchronizedMap(new LinkedHashMap<String, List<InMemoryElement>>());
+		
+		//Value of System.nanoTime() when the network tracker was installed, 0 when it was not
+		private long trackedSince;
+		
+		private Page(String url) {
+			this.url = url;
+		}
+		
+		/**
+		 * Installs the network tracker unless it is installed already.
+		 * @return time of installation
+		 */
+		private synchronized long track() {
+			if (trackedSince == 0) {
+				trackedSince = System.nanoTime();
+			}
+			return trackedSince;
+		}
+		
+		/**
+		 * Elements of a page that is gone become stale.
+		 */
+		private void unload() {
+			synchronized (elements) {
+				elements.values().forEach(InMemoryElement::remove);
+			}
+			synchronized (lists) {
+				lists.values().forEach(list -> list.forEach(InMemoryElement::remove));
+			}
+		}
+		
+		private List<InMemoryElement> find(By by) {
+			List<InMemoryElement> list = lists.get(by.toString());
+			if (list != null) {
+				return list;
+			}
+			InMemoryElement element = elements.get(by.toString());
+			return element != null ? Collections.singletonList(element) : Collections.<InMemoryElement>emptyList();
+		}
+	}
+	
+	private class InMemoryTargetLocator implements TargetLocator {
+
+		@Override
+		public WebDriver frame(int index) {
+			throw new NoSuchFrameException("There are no frames.");
+		}
+
+		@Override
+		public WebDriver frame(String nameOrId) {
+			throw new NoSuchFrameException("There are no frames.");
+		}
+
+		@Override
+		public WebDriver frame(WebElement frameElement) {
+			throw new NoSuchFrameException("There are no frames.");
+		}
+
+		@Override
+		public WebDriver parentFrame() {
+			return InMemoryWebDriver.this;
+		}
+
+		@Override
+		public WebDriver window(String nameOrHandle) {
+			command();
+			if (!windows.containsKey(nameOrHandle)) {
+				throw new NoSuchWindowException("No window " + nameOrHandle);
+			}
+			currentWindow = nameOrHandle;
+			return InMemoryWebDriver.this;
+		}
+
+		@Override
+		public WebDriver defaultContent() {
+			return InMemoryWebDriver.this;
+		}
+
+		@Override
+		public WebElement activeElement() {
+			throw new NoSuchElementException("There is no active element.");
+		}
+
+		@Override
+		public Alert alert() {
+			throw new NoAlertPresentException();
+		}
+	}
+	
+	private class InMemoryNavigation implements Navigation {
+
+		@Override
+		public void back() {
+			command();
+		}
+
+		@Override
+		public void forward() {
+			command();
+		}
+
+		@Override
+		public void to(String url) {
+			get(url);
+		}
+
+		@Override
+		public void to(java.net.URL url) {
+			get(url.toString());
+		}
+
+		@Override
+		public void refresh() {
+			get(getCurrentUrl());
+		}
+	}
+	
+	private class InMemoryOptions implements Options {
+
+		@Override
+		public void addCookie(Cookie cookie) {
+			cookies.remove(getCookieNamed(cookie.getName()));
+			cookies.add(cookie);
+		}
+
+		@Override
+		public void deleteCookieNamed(String name) {
+			cookies.remove(getCookieNamed(name));
+		}
+
+		@Override
+		public void deleteCookie(Cookie cookie) {
+			cookies.remove(cookie);
+		}
+
+		@Override
+		public void deleteAllCookies() {
+			command();
+			cookies.clear();
+		}
+
+		@Override
+		public Set<Cookie> getCookies() {
+			synchronized (cookies) {
+				return new LinkedHashSet<Cookie>(cookies);
+			}
+		}
+
+		@Override
+		public Cookie getCookieNamed(String name) {
+			for (Cookie cookie : getCookies()) {
+				if (cookie.getName().equals(name)) {
+					return cookie;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public Timeouts timeouts() {
+			return new InMemoryTimeouts();
+		}
+
+		@Override
+		public ImeHandler ime() {
+			throw new UnsupportedOperationException("Input methods are not supported.");
+		}
+
+		@Override
+		public Window window() {
+			return new InMemoryWindow();
+		}
+
+		@Override
+		public Logs logs() {
+			throw new UnsupportedOperationException("Logs are not supported.");
+		}
+	}
+	
+	private class InMemoryTimeouts implements Timeouts {
+
+		@Override
+		public Timeouts implicitlyWait(long time, TimeUnit unit) {
+			implicitWaitMillis = unit.toMillis(time);
+			return this;
+		}
+
+		@Override
+		public Timeouts setScriptTimeout(long time, TimeUnit unit) {
+			return this;
+		}
+
+		@Override
+		public Timeouts pageLoadTimeout(long time, TimeUnit unit) {
+			return this;
+		}
+	}
+	
+	private class InMemoryWindow implements Window {
+
+		@Override
+		public void setSize(Dimension targetSize) {
+		}
+
+		@Override
+		public void setPosition(Point targetPosition) {
+		}
+
+		@Override
+		public Dimension getSize() {
+			return new Dimension(1024, 768);
+		}
+
+		@Override
+		public Point getPosition() {
+			return new Point(0, 0);
+		}
+
+		@Override
+		public void maximize() {
+		}
+
+		@Override
+		public void fullscreen() {
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestDurationHistory {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void durationsAreSmoothed() {
+		
+		DurationHistory history = new DurationHistory(folder.getRoot().toPath().resolve("durations.properties"));
+		assertEquals(-1, history.getDuration("login"));
+		
+		history.record("login", 1000);
+		assertEquals(1000, history.getDuration("login"));
+		history.record("login", 2000);
+		assertEquals(1500, history.getDuration("login"));
+		history.record("login", 500);
+		assertEquals(1000, history.getDuration("login"));
+	}
+	
+	@Test
+	public void unknownTestCaseIsEstimatedByMedian() {
+		
+		DurationHistory history = new DurationHistory(folder.getRoot().toPath().resolve("durations.properties"));
+		assertEquals(DurationHistory.DEFAULT_ESTIMATE_MILLIS, history.getEstimate("login"));
+		
+		history.record("login", 100);
+		history.record("checkout", 3000);
+		history.record("search", 200);
+		assertEquals(200, history.getDefaultEstimate());
+		assertEquals(200, history.getEstimate("review"));
+		assertEquals(3000, history.getEstimate("checkout"));
+		
+		//An outlier does not move the estimate as a mean would.
+		history.record("export", 600_000);
+		assertEquals(3000, history.getEstimate("review"));
+	}
+	
+	@Test
+	public void historyIsSavedAndRead() throws IOException {
+		
+		Path file = folder.getRoot().toPath().resolve("history").resolve("durations.properties");
+		DurationHistory history = new DurationHistory(file);
+		history.record("login", 1200);
+		history.record("TestCase with spaces=and:separators", 3400);
+		history.save();
+		
+		DurationHistory read = new DurationHistory(file);
+		assertEquals(1200, read.getDuration("login"));
+		assertEquals(3400, read.getDuration("TestCase with spaces=and:separators"));
+		
+		//Saving replaces the file and leaves no temporary files behind.
+		read.record("login", 800);
+		read.save();
+		assertEquals(1000, new DurationHistory(file).getDuration("login"));
+		try (Stream<Path> files = Files.list(file.getParent())) {
+			assertEquals(Arrays.asList(file.getFileName().toString()), 
+					files.map(path -> path.getFileName().toString()).collect(Collectors.toList()));
+		}
+	}
+	
+	@Test
+	public void unreadableDurationsAreIgnored() throws IOException {
+		
+		Path file = folder.getRoot().toPath().resolve("durations.properties");
+		Files.write(file, Arrays.asList("login=1200", "checkout=fast"), StandardCharsets.UTF_8);
+		
+		DurationHistory history = new DurationHistory(file);
+		assertEquals(1200, history.getDuration("login"));
+		assertEquals(-1, history.getDuration("checkout"));
+		assertEquals(1200, history.getEstimate("checkout"));
+	}
+}
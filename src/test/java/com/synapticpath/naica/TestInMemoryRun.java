@@ -0,0 +1,561 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.NoAlertPresentException;
+import org.openqa.selenium.WebDriver;
+
+import com.synapticpath.naica.journal.ResultsJournal;
+import com.synapticpath.naica.ops.Op;
+import com.synapticpath.naica.reports.HtmlFileSystemReport;
+import com.synapticpath.naica.selenium.CommandStatistics;
+import com.synapticpath.naica.selenium.ElementCache;
+import com.synapticpath.naica.selenium.InstrumentedWebDriver;
+import com.synapticpath.naica.selenium.SeleniumAction;
+import com.synapticpath.naica.selenium.SeleniumCheckpointOp;
+import com.synapticpath.naica.selenium.SeleniumCondition;
+import com.synapticpath.naica.selenium.SeleniumOp;
+import com.synapticpath.naica.selenium.SeleniumSelector;
+import com.synapticpath.naica.selenium.SeleniumSnapOp;
+import com.synapticpath.naica.selenium.SeleniumTestContext;
+import com.synapticpath.naica.selenium.SeleniumTestProperties;
+import com.synapticpath.naica.selenium.SeleniumUtils;
+import com.synapticpath.naica.selenium.WebDriverPool;
+import com.synapticpath.naica.selenium.WindowTracker;
+import com.synapticpath.naica.selenium.memory.InMemoryElement;
+import com.synapticpath.naica.selenium.memory.InMemoryWebDriver;
+
+/**
+ * Runs the same kind of test as {@link TestRun} against an {@link InMemoryWebDriver}, so neither a browser
+ * nor network is needed.
+ * 
+ * @author developer@synapticpath.com
+ *
+ */
+public class TestInMemoryRun {
+	
+	private static final String HOME = "http://synapticpath.com";
+	
+	private static final String PRODUCTS = "http://synapticpath.com/products.html";
+	
+	private static final String CONTACT = "http://synapticpath.com/contact.html";
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private InMemoryWebDriver driver;
+	
+	private SeleniumTestContext context;
+	
+	//Name input of the contact page, kept as the driver is closed when the suite finishes.
+	private InMemoryElement name;
+	
+	@Before
+	public void setUp() {
+		driver = new InMemoryWebDriver()
+				.latency(0, 2)
+				.page(HOME, d -> {
+					d.addElement("a[href=\"products.html\"]").onClick(e -> d.get(PRODUCTS));
+					d.addElement("a[href=\"contact.html\"]").onClick(e -> d.get(CONTACT));
+				})
+				.page(PRODUCTS, d -> d.addElement("#products").text("Our products").appearAfter(300))
+				.page(CONTACT, d -> {
+					name = d.addElement("#name").tagName("input");
+					d.addElement("#sent").text("Message sent").displayed(false);
+					d.addElement("#send").onClick(e -> d.getElement(By.cssSelector("#sent")).displayed(true));
+				});
+		
+		context = new SeleniumTestContext();
+		TestContext.setInstance(context);
+		context.setDriver(driver);
+		context.setProperties(new SeleniumTestProperties(folder.getRoot().getPath()));
+	}
+	
+	@After
+	public void tearDown() {
+		TestContext.removeInstance();
+	}
+	
+	@Test
+	public void runTest() {
+		
+		TestCaseRunner caseRunner = new TestCaseRunner("TestCase1", createTestOps());
+		TestSuiteRunner runner = new TestSuiteRunner(caseRunner);
+		runner.setReportGenerators(new HtmlFileSystemReport());
+		runner.run();
+		
+		assertFalse(context.isFailed());
+		assertEquals("Our name", name.getValue());
+		assertTrue(driver.getScreenshotCount() > 0);
+		assertTrue(context.getCounters().get(SeleniumUtils.IMMEDIATE_COUNTER) > 0);
+		assertEquals(Long.valueOf(1), context.getCounters().get(SeleniumUtils.WAITED_COUNTER));
+		assertTrue(context.getCounters().get(ElementCache.HIT_COUNTER) > 0);
+	}
+	
+	@Test
+	public void instrumentedDriverRecordsCommands() {
+		
+		context.setDriver(InstrumentedWebDriver.wrap(driver));
+		CommandStatistics statistics = InstrumentedWebDriver.of(context.getDriver()).getStatistics();
+		TestSuiteRunner runner = new TestSuiteRunner(new TestCaseRunner("TestCase1", createTestOps()));
+		runner.run();
+		
+		assertFalse(context.isFailed());
+		assertEquals(3, statistics.getCommands().get("click").getCount());
+		assertEquals(Long.valueOf(3), context.getCounters().get(InstrumentedWebDriver.COMMAND_COUNTER_PREFIX + "click"));
+		assertEquals(3, statistics.getCommands("Send message.").get("click").getCount() 
+				+ statistics.getCommands("Navigate to contact page.").get("click").getCount() 
+				+ statistics.getCommands("Navigate to products page, products are loaded with delay.").get("click").getCount());
+		assertTrue(context.getTotalNanos(Timing.Category.COMMAND) > 0);
+	}
+	
+	@Test
+	public void instrumentedDriverRecordsMissingAlert() {
+		
+		WebDriver instrumented = InstrumentedWebDriver.wrap(driver);
+		instrumented.get(HOME);
+		try {
+			instrumented.switchTo().alert();
+			fail("No alert is open.");
+		} catch (NoAlertPresentException e) {
+			//Expected, the exception of the driver is not wrapped.
+		}
+		
+		CommandStatistics statistics = InstrumentedWebDriver.of(instrumented).getStatistics();
+		assertEquals(1, statistics.getCommands().get("TargetLocator.alert").getCount());
+		assertFalse(statistics.getCommands().containsKey("switchTo"));
+	}
+	
+	@Test
+	public void countersAreJournaledOncePerStep() throws Exception {
+		
+		Path file = folder.getRoot().toPath().resolve("journal.tsv");
+		context.setDriver(null);
+		context.setDriverPool(new WebDriverPool(() -> InstrumentedWebDriver.wrap(driver), 1));
+		context.setJournal(new ResultsJournal(file).releaseCompleted(false));
+		TestSuiteRunner runner = new TestSuiteRunner(new TestCaseRunner("TestCase1", createTestOps()));
+		runner.run();
+		
+		assertFalse(context.isFailed());
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		List<String> events = lines.stream().map(line -> line.split("\t")[1]).collect(Collectors.toList());
+		assertTrue(events.lastIndexOf("COUNT") < events.indexOf("END"));
+		//All ops share a single step, so each counter is journaled once however often it was incremented.
+		assertEquals(1, events.stream().filter("STEP"::equals).count());
+		assertEquals(context.getCounters().size(), events.stream().filter("COUNT"::equals).count());
+		assertTrue(context.getCounters().get(InstrumentedWebDriver.COMMAND_COUNTER_PREFIX + "click") > 1);
+		assertEquals(context.getCounters(), ResultsJournal.replay(file, context.getProperties()).getCounters());
+	}
+	
+	@Test
+	public void elementThatDoesNotAppearFails() {
+		
+		context.newTestCase("TestCase2");
+		SeleniumOp.on(SeleniumAction.get(HOME), SeleniumCondition.exists(SeleniumSelector.byId("missing")).timeout(1))
+			.newStep(true)
+			.execute();
+		context.stop();
+		
+		assertTrue(context.isFailed());
+	}
+	
+	@Test
+	public void conditionsShareDeadlineOfOp() {
+		
+		context.newTestCase("TestCase3");
+		long start = System.currentTimeMillis();
+		boolean success = SeleniumOp.on(SeleniumAction.get(HOME), 
+				SeleniumCondition.exists(SeleniumSelector.byId("missing")).timeout(30),
+				SeleniumCondition.exists(SeleniumSelector.byId("absent")).timeout(30))
+			.deadline(1)
+			.execute();
+		context.stop();
+		
+		assertFalse(success);
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertEquals(null, context.getOpDeadline());
+	}
+	
+	@Test
+	public void clickThatOpensWindowSwitchesToIt() {
+		
+		driver.page(HOME, d -> d.addElement("#popup").onClick(e -> d.openWindow(CONTACT)));
+		
+		context.newTestCase("TestCase4");
+		boolean success = SeleniumOp.on(SeleniumAction.get(HOME)).execute()
+				&& SeleniumOp.on(SeleniumAction.click(SeleniumSelector.byId("popup")), 
+						SeleniumCondition.exists(SeleniumSelector.byId("name"))).execute();
+		context.stop();
+		
+		assertTrue(success);
+		assertEquals(Long.valueOf(2), context.getCounters().get(WindowTracker.CHECK_COUNTER));
+	}
+	
+	@Test
+	public void windowOpenedWithoutTrackingIsNotTakenForNewOne() {
+		
+		driver.page(HOME, d -> {
+			d.addElement("#popup").onClick(e -> d.openWindow(CONTACT));
+			d.addElement("#menu");
+		});
+		
+		context.newTestCase("TestCase4");
+		boolean success = SeleniumOp.on(SeleniumAction.get(HOME)).execute()
+				&& SeleniumOp.on(SeleniumAction.click(SeleniumSelector.byId("menu"))).execute()
+				&& SeleniumOp.on(SeleniumAction.click(SeleniumSelector.byId("popup"))).trackWindows(false).execute()
+				&& SeleniumOp.on(SeleniumAction.click(SeleniumSelector.byId("menu")), 
+						SeleniumCondition.exists(SeleniumSelector.byId("menu"))).execute();
+		context.stop();
+		
+		assertTrue(success);
+		assertEquals(2, driver.getWindowHandles().size());
+		assertEquals(HOME, driver.getCurrentUrl());
+	}
+	
+	@Test
+	public void formIsFilledByOneScript() {
+		
+		context.newTestCase("TestCase5");
+		SeleniumOp.on(SeleniumAction.get(CONTACT)).execute();
+		InMemoryElement copy = driver.addElement("#copy");
+		long commands = driver.getCommandCount();
+		boolean success = SeleniumOp.on(SeleniumAction.form()
+				.field(SeleniumSelector.byId("name"), "Our name")
+				.check(SeleniumSelector.byId("copy"), true)).execute();
+		
+		assertTrue(success);
+		assertEquals("Our name", name.getValue());
+		assertTrue(copy.isSelected());
+		assertTrue(driver.getCommandCount() - commands <= 3);
+		
+		success = SeleniumOp.on(SeleniumAction.form()
+				.field(SeleniumSelector.byId("name"), "Other name")
+				.select(SeleniumSelector.byId("country"), "Czechia")).execute();
+		context.stop();
+		
+		assertFalse(success);
+		List<TestStep> steps = context.getTestCase("TestCase5").getSteps();
+		assertTrue(steps.get(steps.size() - 1).getResults().contains("Field By.cssSelector: #country could not be filled: not found."));
+	}
+	
+	@Test
+	public void collectionConditionsReportOffendingRows() {
+		
+		driver.page(PRODUCTS, d -> d.addElements("td.price", "10", "1,200", "300", "4,000").forEach(e -> e.appearAfter(200)));
+		
+		context.newTestCase("TestCase6");
+		long commands = driver.getCommandCount();
+		boolean success = SeleniumOp.on(SeleniumAction.get(PRODUCTS), 
+				SeleniumCondition.count(SeleniumSelector.byCss("td.price"), 4),
+				SeleniumCondition.countAtLeast(SeleniumSelector.byCss("td.price"), 2),
+				SeleniumCondition.allContain(SeleniumSelector.byCss("td.price"), "0")).execute();
+		
+		assertTrue(success);
+		assertTrue(driver.getCommandCount() - commands < 10);
+		
+		success = SeleniumOp.on(SeleniumAction.noAction(), 
+				SeleniumCondition.sorted(SeleniumSelector.byCss("td.price"), false).timeout(1)).execute();
+		context.stop();
+		
+		assertFalse(success);
+		List<TestStep> steps = context.getTestCase("TestCase6").getSteps();
+		assertTrue(steps.get(steps.size() - 1).getResults().contains("sorted By.cssSelector: td.price: Row 3 '300' is out of order after '1,200'."));
+	}
+	
+	@Test
+	public void checkpointIsRestoredInsteadOfSetup() {
+		
+		Set<String> sessions = new HashSet<String>();
+		AtomicInteger logins = new AtomicInteger();
+		Supplier<InMemoryWebDriver> factory = () -> new InMemoryWebDriver()
+				.page(HOME, d -> d.addElement("#login").onClick(e -> {
+					String session = "session" + logins.incrementAndGet();
+					sessions.add(session);
+					d.manage().addCookie(new Cookie("session", session));
+					d.getLocalStorage().put("user", "naica");
+					d.get(CONTACT);
+				}))
+				.page(CONTACT, d -> {
+					Cookie session = d.manage().getCookieNamed("session");
+					if (session == null || !sessions.contains(session.getValue())) {
+						d.get(HOME);
+					}
+				});
+		Op login = SeleniumCheckpointOp.of("login", SeleniumOp.on(SeleniumAction.get(HOME)), 
+				SeleniumOp.on(SeleniumAction.click(SeleniumSelector.byId("login")), SeleniumCondition.url("contact.html")));
+		
+		for (int i = 0; i < 3; i++) {
+			if (i == 2) {
+				//Session expired on the server, the checkpoint cannot be restored.
+				sessions.clear();
+			}
+			InMemoryWebDriver fresh = factory.get();
+			context.setDriver(fresh);
+			context.newTestCase("TestCase" + (7 + i));
+			assertTrue(login.execute());
+			context.stop();
+			assertEquals(CONTACT, fresh.getCurrentUrl());
+			assertEquals("naica", fresh.getLocalStorage().get("user"));
+		}
+		
+		assertEquals(2, logins.get());
+		assertEquals(Long.valueOf(2), context.getCounters().get(SeleniumCheckpointOp.CAPTURED_COUNTER));
+		assertEquals(Long.valueOf(1), context.getCounters().get(SeleniumCheckpointOp.RESTORED_COUNTER));
+		assertEquals(Long.valueOf(1), context.getCounters().get(SeleniumCheckpointOp.FALLBACK_COUNTER));
+	}
+	
+	@Test
+	public void opWaitsForNetworkIdleAfterActions() {
+		
+		driver.page(CONTACT, d -> d.addElement("#search").onClick(e -> {
+			d.request(300);
+			d.addElement("#results").appearAfter(300);
+		}));
+		
+		context.newTestCase("TestCase10");
+		SeleniumOp.on(SeleniumAction.get(CONTACT)).execute();
+		long start = System.currentTimeMillis();
+		boolean success = SeleniumOp.on(SeleniumAction.click(SeleniumSelector.byId("search")), 
+				SeleniumCondition.exists(SeleniumSelector.byId("results")).timeout(0))
+				.waitForNetworkIdle(100).execute();
+		
+		assertTrue(success);
+		assertTrue(System.currentTimeMillis() - start >= 400);
+		
+		driver.request(5000);
+		success = SeleniumOp.on(SeleniumAction.noAction(), SeleniumCondition.networkIdle(100).timeout(1)).execute();
+		context.stop();
+		
+		assertFalse(success);
+	}
+	
+	@Test
+	public void immediateCheckRestoresImplicitWait() {
+		
+		driver.manage().timeouts().implicitlyWait(2000, TimeUnit.MILLISECONDS);
+		context.newTestCase("TestCase13");
+		SeleniumOp.on(SeleniumAction.get(CONTACT)).execute();
+		
+		assertTrue(SeleniumUtils.waitUntilElementGoneWithTimeout(SeleniumSelector.byId("missing"), 0));
+		//Without the property the implicit wait of the driver is left alone.
+		assertEquals(2000, driver.getImplicitWait());
+		
+		SeleniumTestProperties properties = new SeleniumTestProperties(folder.getRoot().getPath());
+		properties.setImplicitWait(2000);
+		context.setProperties(properties);
+		assertTrue(SeleniumUtils.waitUntilElementGoneWithTimeout(SeleniumSelector.byId("missing"), 0));
+		assertEquals(2000, driver.getImplicitWait());
+		context.stop();
+	}
+	
+	@Test
+	public void fastEntrySetsTextByScript() {
+		
+		AtomicInteger entered = new AtomicInteger();
+		driver.page(CONTACT, d -> {
+			name = d.addElement("#name").tagName("input").onEnter(e -> entered.incrementAndGet());
+			d.addElement("#editor");
+		});
+		
+		context.newTestCase("TestCase12");
+		SeleniumOp.on(SeleniumAction.get(CONTACT)).execute();
+		name.value("Old name");
+		
+		assertTrue(SeleniumOp.on(SeleniumAction.text(SeleniumSelector.byId("name"), "Our name").overwrite(true).fastEntry(true)).execute());
+		assertEquals("Our name", name.getValue());
+		assertEquals(0, driver.getKeystrokeCount());
+		
+		assertTrue(SeleniumOp.on(SeleniumAction.text(SeleniumSelector.byId("name"), " and more").fastEntry(true)).execute());
+		assertEquals("Our name and more", name.getValue());
+		assertEquals(0, driver.getKeystrokeCount());
+		
+		assertTrue(SeleniumOp.on(SeleniumAction.text(SeleniumSelector.byId("name"), "Query").overwrite(true).fastEntry(true).sendEnter(true)).execute());
+		assertEquals("Query", name.getValue());
+		assertEquals(1, entered.get());
+		assertEquals(1, driver.getKeystrokeCount());
+		
+		//The script refuses elements without a value, the text is typed instead.
+		assertTrue(SeleniumOp.on(SeleniumAction.text(SeleniumSelector.byId("editor"), "abc").fastEntry(true)).execute());
+		assertEquals("abc", driver.getElement(By.cssSelector("#editor")).getValue());
+		assertEquals(4, driver.getKeystrokeCount());
+		context.stop();
+		
+		assertFalse(context.isFailed());
+	}
+	
+	@Test
+	public void dependentsOfFailedTestCaseAreSkipped() {
+		
+		TestCaseRunner account = new TestCaseRunner("createAccount", SeleniumOp.on(SeleniumAction.get(HOME), 
+				SeleniumCondition.exists(SeleniumSelector.byId("missing")).timeout(1)));
+		TestCaseRunner profile = new TestCaseRunner("editProfile", SeleniumOp.on(SeleniumAction.get(HOME))).dependsOn("createAccount");
+		TestCaseRunner avatar = new TestCaseRunner("uploadAvatar", SeleniumOp.on(SeleniumAction.get(HOME))).dependsOn("editProfile");
+		TestCaseRunner contact = new TestCaseRunner("contact", SeleniumOp.on(SeleniumAction.get(CONTACT)));
+		
+		List<InMemoryWebDriver> workerDrivers = Collections.synchronizedList(new ArrayList<InMemoryWebDriver>());
+		context.setDriverFactory(() -> {
+			InMemoryWebDriver workerDriver = new InMemoryWebDriver();
+			workerDrivers.add(workerDriver);
+			return workerDriver;
+		});
+		TestSuiteRunner runner = new TestSuiteRunner(avatar, profile, account, contact);
+		runner.setWorkers(2);
+		runner.run();
+		
+		assertEquals(2, workerDrivers.size());
+		workerDrivers.forEach(workerDriver -> assertTrue(workerDriver.isQuit()));
+		
+		assertEquals(TestOutcome.FAILURE, context.getTestCase("createAccount").getOutcome());
+		assertEquals(TestOutcome.SKIPPED, context.getTestCase("editProfile").getOutcome());
+		assertEquals(TestOutcome.SKIPPED, context.getTestCase("uploadAvatar").getOutcome());
+		assertEquals(TestOutcome.SUCCESS, context.getTestCase("contact").getOutcome());
+		//Finishing the worker does not stretch its last TestCase until the other worker is done.
+		assertTrue(context.getTestCase("contact").getDuration() < context.getTestCase("createAccount").getDuration());
+		assertEquals(Arrays.asList("createAccount", "editProfile", "uploadAvatar"), runner.getCriticalPath());
+	}
+	
+	@Test(timeout = 30000)
+	public void workerEndedByErrorDoesNotStopOtherWorkers() {
+		
+		//A test with timeout runs in a thread of its own.
+		TestContext.setInstance(context);
+		TestCaseRunner broken = new TestCaseRunner("broken", () -> {
+			throw new AssertionError("Broken Op");
+		});
+		TestCaseRunner dependent = new TestCaseRunner("dependent", SeleniumOp.on(SeleniumAction.get(HOME))).dependsOn("broken");
+		TestCaseRunner contact = new TestCaseRunner("contact", SeleniumOp.on(SeleniumAction.get(CONTACT)));
+		TestCaseRunner products = new TestCaseRunner("products", SeleniumOp.on(SeleniumAction.get(PRODUCTS)));
+		
+		context.setDriverFactory(InMemoryWebDriver::new);
+		TestSuiteRunner runner = new TestSuiteRunner(broken, dependent, contact, products);
+		runner.setScheduling(TestSuiteRunner.Scheduling.GIVEN_ORDER);
+		runner.setWorkers(2);
+		runner.run();
+		
+		assertEquals(TestOutcome.SUCCESS, context.getTestCase("contact").getOutcome());
+		assertEquals(TestOutcome.SUCCESS, context.getTestCase("products").getOutcome());
+		assertTrue(context.getTestCase("broken").isFailed());
+		assertTrue(context.getTestCase("dependent").isFailed());
+	}
+	
+	@Test
+	public void testCaseOverBudgetIsCancelled() {
+		
+		TestCaseRunner hang = new TestCaseRunner("hang", SeleniumOp.on(SeleniumAction.get(HOME), 
+				SeleniumCondition.exists(SeleniumSelector.byId("missing")).timeout(30)));
+		TestCaseRunner contact = new TestCaseRunner("contact", SeleniumOp.on(SeleniumAction.get(CONTACT)));
+		
+		context.setDriverFactory(InMemoryWebDriver::new);
+		TestSuiteRunner runner = new TestSuiteRunner(hang, contact);
+		runner.setTestCaseBudget(1);
+		long start = System.currentTimeMillis();
+		runner.run();
+		
+		assertTrue(System.currentTimeMillis() - start < 10000);
+		assertEquals(TestOutcome.FAILURE, context.getTestCase("hang").getOutcome());
+		List<TestStep> steps = context.getTestCase("hang").getSteps();
+		assertTrue(steps.get(steps.size() - 1).getResults().contains("TestCase exceeded its time budget of 1 s and was cancelled."));
+		assertEquals(TestOutcome.SUCCESS, context.getTestCase("contact").getOutcome());
+		assertEquals(1, runner.getWatchdogFiredCount());
+	}
+	
+	@Test
+	public void testCaseNotExecutedIsLeftOutOfDurationHistory() throws Exception {
+		
+		TestCaseRunner hang = new TestCaseRunner("hang", SeleniumOp.on(SeleniumAction.get(HOME), 
+				SeleniumCondition.exists(SeleniumSelector.byId("missing")).timeout(30)));
+		TestCaseRunner contact = new TestCaseRunner("contact", SeleniumOp.on(SeleniumAction.get(CONTACT))).dependsOn("hang");
+		TestCaseRunner products = new TestCaseRunner("products", SeleniumOp.on(SeleniumAction.get(PRODUCTS)));
+		
+		DurationHistory history = new DurationHistory(folder.getRoot().toPath().resolve("durations.properties"));
+		context.setDriverFactory(InMemoryWebDriver::new);
+		TestSuiteRunner runner = new TestSuiteRunner(hang, contact, products);
+		runner.setScheduling(TestSuiteRunner.Scheduling.GIVEN_ORDER);
+		runner.setDurationHistory(history);
+		runner.setSuiteBudget(1);
+		runner.run();
+		
+		assertEquals(TestOutcome.FAILURE, context.getTestCase("hang").getOutcome());
+		assertEquals(TestOutcome.SKIPPED, context.getTestCase("contact").getOutcome());
+		assertEquals(TestOutcome.FAILURE, context.getTestCase("products").getOutcome());
+		assertTrue(context.getTestCase("products").getSteps().get(0).getResults().stream().anyMatch(result -> result.contains("was not executed")));
+		
+		DurationHistory saved = new DurationHistory(history.getFile());
+		assertTrue(saved.getDuration("hang") >= 0);
+		assertEquals(-1, saved.getDuration("contact"));
+		assertEquals(-1, saved.getDuration("products"));
+	}
+	
+	private Op [] createTestOps() {
+		
+		return new Op [] {
+				
+				SeleniumOp.on(SeleniumAction.get(HOME), SeleniumCondition.url("synapticpath.com"))
+				.newStep(true)
+				.description("Go to synapticpath.com"),
+				
+				SeleniumSnapOp.snapOp("products", 
+						SeleniumAction.click(SeleniumSelector.byCss("a[href=\"products.html\"]")), 
+						SeleniumCondition.visible(SeleniumSelector.byId("products"))
+							.onSuccess("Products page is visible."))
+					.description("Navigate to products page, products are loaded with delay."),
+				
+				SeleniumOp.on(SeleniumAction.get(HOME), SeleniumCondition.url("synapticpath.com"))
+				.description("Go back to synapticpath.com"),
+				
+				SeleniumOp.on(SeleniumAction.click(SeleniumSelector.byCss("a[href=\"contact.html\"]")), 
+						SeleniumCondition.url("contact.html"))
+					.description("Navigate to contact page."),
+				
+				SeleniumOp.on(SeleniumAction.text(SeleniumSelector.byId("name"), "Our name"), 
+						SeleniumCondition.exists(SeleniumSelector.byId("name")))
+					.description("Enter name."),
+				
+				SeleniumSnapOp.snapOp("sent", 
+						SeleniumAction.click(SeleniumSelector.byId("send")), 
+						SeleniumCondition.text(SeleniumSelector.byId("sent"), "Message sent")
+							.onSuccess("Message was sent."))
+					.description("Send message.")
+		};
+	}
+
+}
@@ -0,0 +1,128 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.synapticpath.naica.journal.ResultsJournal;
+import com.synapticpath.naica.ops.Op;
+
+public class TestRerun {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private Path file;
+	
+	private TestContext context;
+	
+	private final Set<String> executed = Collections.synchronizedSet(new LinkedHashSet<String>());
+	
+	@Before
+	public void setUp() {
+		file = folder.getRoot().toPath().resolve("journal.tsv");
+		context = new TestContext();
+		TestContext.setInstance(context);
+	}
+	
+	@After
+	public void tearDown() {
+		TestContext.removeInstance();
+	}
+	
+	@Test
+	public void onlyTestCasesThatDidNotSucceedAreRerun() throws IOException {
+		
+		ResultsJournal previous = new ResultsJournal(file);
+		previous.record(testCase("login", TestOutcome.SUCCESS));
+		previous.record(testCase("checkout", TestOutcome.FAILURE));
+		previous.record(testCase("review", TestOutcome.SKIPPED));
+		previous.record(testCase("profile", TestOutcome.SUCCESS));
+		previous.close();
+		Map<String, TestCase> previousCases = ResultsJournal.read(file);
+		
+		//The journal of the previous run is kept next to the new one.
+		ResultsJournal journal = new ResultsJournal(file).releaseCompleted(false);
+		context.setJournal(journal);
+		TestSuiteRunner runner = new TestSuiteRunner(runner("login"), runner("checkout"), runner("review").dependsOn("checkout"), 
+				runner("profile"), runner("avatar").dependsOn("profile"));
+		runner.setPreviousResults(journal.getPreviousFile());
+		runner.run();
+		
+		assertEquals(new LinkedHashSet<String>(Arrays.asList("checkout", "review", "avatar")), executed);
+		for (String id : Arrays.asList("login", "checkout", "review", "profile", "avatar")) {
+			assertEquals(id, TestOutcome.SUCCESS, context.getTestCase(id).getOutcome());
+		}
+		assertEquals(previousCases.get("login").getStartTime(), context.getTestCase("login").getStartTime());
+		assertEquals(previousCases.get("profile").getFinishTime(), context.getTestCase("profile").getFinishTime());
+		
+		Map<String, TestCase> journaled = ResultsJournal.read(file);
+		assertEquals(5, journaled.size());
+		assertEquals(TestOutcome.SUCCESS, journaled.get("login").getOutcome());
+		assertEquals(TestOutcome.SUCCESS, journaled.get("profile").getOutcome());
+		assertEquals(TestOutcome.SUCCESS, journaled.get("avatar").getOutcome());
+	}
+	
+	@Test
+	public void allTestCasesRunWithoutPreviousResults() {
+		
+		TestSuiteRunner runner = new TestSuiteRunner(runner("login"), runner("checkout").dependsOn("login"));
+		runner.setPreviousResults(folder.getRoot().toPath().resolve("missing.tsv"));
+		runner.run();
+		
+		assertEquals(new LinkedHashSet<String>(Arrays.asList("login", "checkout")), executed);
+		assertFalse(context.isFailed());
+	}
+	
+	/**
+	 * Creates a runner that succeeds and remembers that it was executed.
+	 */
+	private TestCaseRunner runner(String id) {
+		Op op = () -> {
+			executed.add(id);
+			TestContext.getInstance().addStep(id);
+			return true;
+		};
+		return new TestCaseRunner(id, op);
+	}
+	
+	private static TestCase testCase(String id, TestOutcome outcome) {
+		TestCase testCase = new TestCase(id, System.currentTimeMillis() - 1000);
+		testCase.addAction(id);
+		if (outcome == TestOutcome.FAILURE) {
+			testCase.fail();
+		} else if (outcome == TestOutcome.SKIPPED) {
+			testCase.skip();
+		}
+		testCase.stop();
+		return testCase;
+	}
+}
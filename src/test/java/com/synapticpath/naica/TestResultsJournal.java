@@ -0,0 +1,205 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.synapticpath.naica.journal.ResultsJournal;
+import com.synapticpath.naica.ops.Op;
+
+public class TestResultsJournal {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private Path file;
+	
+	private TestContext context;
+	
+	@Before
+	public void setUp() throws IOException {
+		file = folder.getRoot().toPath().resolve("journal.tsv");
+		context = new TestContext();
+		TestContext.setInstance(context);
+	}
+	
+	@After
+	public void tearDown() {
+		TestContext.removeInstance();
+	}
+	
+	@Test
+	public void journalTruncatedMidCaseIsReplayed() throws IOException {
+		
+		context.setJournal(new ResultsJournal(file).releaseCompleted(false));
+		context.newTestCase("login");
+		context.addStep("Open login page.");
+		context.addResult("Login page is shown.");
+		context.addStep("Enter credentials.");
+		context.addResult("User is logged in.");
+		context.stop();
+		
+		context.newTestCase("checkout");
+		context.addStep("Add product to cart.");
+		context.addResult("Cart holds 1 product.");
+		context.addStep("Pay.");
+		context.getJournal().close();
+		
+		//The JVM died while writing the last event.
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		String last = lines.remove(lines.size() - 1);
+		lines.add(last.substring(0, last.indexOf('\t')));
+		Files.write(file, lines, StandardCharsets.UTF_8);
+		
+		Map<String, TestCase> testCases = ResultsJournal.read(file);
+		assertEquals(2, testCases.size());
+		
+		TestCase login = testCases.get("login");
+		assertEquals(TestOutcome.SUCCESS, login.getOutcome());
+		assertEquals(context.getTestCase("login").getFinishTime(), login.getFinishTime());
+		assertSameSteps(context.getTestCase("login"), login);
+		
+		TestCase checkout = testCases.get("checkout");
+		assertEquals(TestOutcome.FAILURE, checkout.getOutcome());
+		assertTrue(checkout.getFinishTime() >= checkout.getStartTime());
+		List<TestStep> steps = checkout.getSteps();
+		assertEquals(2, steps.size());
+		assertTrue(steps.get(0).getActions().contains("Add product to cart."));
+		assertTrue(steps.get(0).getResults().contains("Cart holds 1 product."));
+		assertFalse(steps.get(1).getActions().contains("Pay."));
+		assertTrue(steps.get(1).getResults().contains("TestCase did not finish, the run was interrupted."));
+	}
+	
+	@Test
+	public void tabsAndNewlinesRoundTrip() throws IOException {
+		
+		String action = "Enter\tname\nand address\r\n with \\t backslash\\";
+		String result = "\tLeading tab and trailing newline\n";
+		
+		context.setJournal(new ResultsJournal(file));
+		context.newTestCase("id\twith\ttabs");
+		context.addStep(action);
+		context.addResult(result);
+		context.stop();
+		context.getJournal().close();
+		
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			assertFalse(line.contains("\n") || line.contains("\r"));
+		}
+		TestCase testCase = ResultsJournal.read(file).get("id\twith\ttabs");
+		assertTrue(testCase.getSteps().get(0).getActions().contains(action));
+		assertTrue(testCase.getSteps().get(0).getResults().contains(result));
+	}
+	
+	@Test
+	public void previousJournalIsKept() throws IOException {
+		
+		journalCase("first");
+		assertFalse(Files.exists(context.getJournal().getPreviousFile()));
+		
+		journalCase("second");
+		assertTrue(ResultsJournal.read(context.getJournal().getPreviousFile()).containsKey("first"));
+		ResultsJournal journal = new ResultsJournal(file);
+		journal.close();
+		
+		assertTrue(ResultsJournal.read(journal.getPreviousFile()).containsKey("second"));
+		assertFalse(ResultsJournal.read(journal.getPreviousFile()).containsKey("first"));
+		assertTrue(ResultsJournal.read(file).isEmpty());
+	}
+	
+	@Test
+	public void releasedTestCasesAreReportedLikeKeptOnes() throws IOException {
+		
+		TestContext kept = run(false);
+		TestContext released = run(true);
+		
+		assertEquals(3, released.getTestCases().size());
+		for (TestCase testCase : kept.getTestCases()) {
+			TestCase replayed = released.getTestCase(testCase.getId());
+			assertEquals(testCase.getOutcome(), replayed.getOutcome());
+			assertSameSteps(testCase, replayed);
+		}
+		assertEquals(TestOutcome.FAILURE, released.getTestCase("checkout").getOutcome());
+		assertEquals(TestOutcome.SKIPPED, released.getTestCase("review").getOutcome());
+	}
+	
+	/**
+	 * Runs a small suite journaled to the journal file and returns the context its reports were generated from.
+	 */
+	private TestContext run(boolean releaseCompleted) throws IOException {
+		
+		TestContext suiteContext = new TestContext();
+		TestContext.setInstance(suiteContext);
+		suiteContext.setJournal(new ResultsJournal(file).releaseCompleted(releaseCompleted));
+		
+		Op login = () -> {
+			TestContext.getInstance().addStep("Log in.");
+			TestContext.getInstance().addResult("User is logged in.");
+			return true;
+		};
+		Op pay = () -> {
+			TestContext.getInstance().addStep("Pay.");
+			TestContext.getInstance().addResult("Payment was declined.");
+			TestContext.getInstance().fail();
+			return false;
+		};
+		
+		List<TestContext> reported = new ArrayList<TestContext>();
+		TestSuiteRunner runner = new TestSuiteRunner(new TestCaseRunner("login", login), 
+				new TestCaseRunner("checkout", login, pay), 
+				new TestCaseRunner("review", login).dependsOn("checkout"));
+		runner.setReportGenerators(reported::add);
+		runner.run();
+		
+		assertEquals(1, reported.size());
+		return reported.get(0);
+	}
+	
+	private void journalCase(String id) throws IOException {
+		context.setJournal(new ResultsJournal(file));
+		context.newTestCase(id);
+		context.addStep("Open home page.");
+		context.stop();
+		context.getJournal().close();
+	}
+	
+	private static void assertSameSteps(TestCase expected, TestCase actual) {
+		assertEquals(expected.getSteps().size(), actual.getSteps().size());
+		for (int i = 0; i < expected.getSteps().size(); i++) {
+			TestStep expectedStep = expected.getSteps().get(i);
+			TestStep actualStep = actual.getSteps().get(i);
+			assertEquals(expectedStep.getActions(), actualStep.getActions());
+			assertEquals(expectedStep.getResults(), actualStep.getResults());
+			assertEquals(expectedStep.getOutcome(), actualStep.getOutcome());
+		}
+	}
+}
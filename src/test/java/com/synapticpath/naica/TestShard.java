@@ -0,0 +1,204 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.synapticpath.naica.Shard.Sharding;
+import com.synapticpath.naica.ops.NoOp;
+
+public class TestShard {
+	
+	private static final int SHARDS = 3;
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private final ToLongFunction<TestCaseRunner> estimate = runner -> 1000L * (runner.getId().length() % 7 + 1);
+	
+	/**
+	 * A fixed suite of independent TestCases and two chains of dependent ones.
+	 */
+	private TestCaseRunner [] createRunners() {
+		List<TestCaseRunner> runners = new ArrayList<TestCaseRunner>();
+		for (int i = 0; i < 20; i++) {
+			runners.add(new TestCaseRunner("case" + i, NoOp.make()));
+		}
+		runners.add(new TestCaseRunner("createAccount", NoOp.make()));
+		runners.add(new TestCaseRunner("editProfile", NoOp.make()).dependsOn("createAccount"));
+		runners.add(new TestCaseRunner("uploadAvatar", NoOp.make()).dependsOn("editProfile"));
+		runners.add(new TestCaseRunner("deleteAccount", NoOp.make()).dependsOn("createAccount"));
+		runners.add(new TestCaseRunner("addToCart", NoOp.make()));
+		runners.add(new TestCaseRunner("checkout", NoOp.make()).dependsOn("addToCart", "case3"));
+		return runners.toArray(new TestCaseRunner[runners.size()]);
+	}
+	
+	@Test
+	public void everyTestCaseIsInExactlyOneShard() {
+		for (Sharding sharding : Sharding.values()) {
+			TestCaseRunner [] runners = createRunners();
+			Map<String, Integer> shards = selectAll(runners, sharding);
+			
+			assertEquals(ids(runners), shards.keySet());
+			assertEquals(runners.length, shards.size());
+		}
+	}
+	
+	@Test
+	public void dependentTestCasesShareShard() {
+		for (Sharding sharding : Sharding.values()) {
+			TestCaseRunner [] runners = createRunners();
+			Map<String, Integer> shards = selectAll(runners, sharding);
+			
+			for (TestCaseRunner runner : runners) {
+				for (String dependency : runner.getDependencies()) {
+					assertEquals(runner.getId() + " by " + sharding, shards.get(dependency), shards.get(runner.getId()));
+				}
+			}
+			assertEquals(shards.get("createAccount"), shards.get("uploadAvatar"));
+			assertEquals(shards.get("case3"), shards.get("addToCart"));
+		}
+	}
+	
+	@Test
+	public void selectionKeepsOrderOfRunners() {
+		TestCaseRunner [] runners = createRunners();
+		List<String> order = new ArrayList<String>(ids(runners));
+		for (int index = 1; index <= SHARDS; index++) {
+			List<String> selected = new ArrayList<String>(ids(new Shard(index, SHARDS, Sharding.HASH).select(runners, estimate)));
+			List<String> expected = new ArrayList<String>(order);
+			expected.retainAll(selected);
+			assertEquals(expected, selected);
+		}
+	}
+	
+	@Test
+	public void hashAssignmentIsStable() {
+		TestCaseRunner [] runners = createRunners();
+		Map<String, Integer> shards = selectAll(runners, Sharding.HASH);
+		
+		//Another JVM may get the runners in another order and with more TestCases added.
+		List<TestCaseRunner> changed = new ArrayList<TestCaseRunner>(Arrays.asList(createRunners()));
+		Collections.reverse(changed);
+		changed.add(new TestCaseRunner("newCase", NoOp.make()));
+		Map<String, Integer> changedShards = selectAll(changed.toArray(new TestCaseRunner[changed.size()]), Sharding.HASH);
+		
+		shards.forEach((id, shard) -> assertEquals(id, shard, changedShards.get(id)));
+	}
+	
+	@Test
+	public void durationAssignmentIsStableAndBalanced() {
+		TestCaseRunner [] runners = createRunners();
+		Map<String, Integer> shards = selectAll(runners, Sharding.DURATION);
+		
+		List<TestCaseRunner> reversed = new ArrayList<TestCaseRunner>(Arrays.asList(createRunners()));
+		Collections.reverse(reversed);
+		assertEquals(shards, selectAll(reversed.toArray(new TestCaseRunner[reversed.size()]), Sharding.DURATION));
+		
+		long [] loads = new long[SHARDS];
+		long longest = 0;
+		for (TestCaseRunner runner : runners) {
+			loads[shards.get(runner.getId()) - 1] += estimate.applyAsLong(runner);
+			longest = Math.max(longest, estimate.applyAsLong(runner));
+		}
+		long [] sorted = loads.clone();
+		Arrays.sort(sorted);
+		//Dependency groups are placed whole, so loads may differ by at most the largest group.
+		assertTrue(Arrays.toString(loads), sorted[SHARDS - 1] - sorted[0] <= 4 * longest);
+	}
+	
+	@Test
+	public void durationAssignmentNeedsIdenticalHistory() {
+		TestCaseRunner [] runners = {new TestCaseRunner("login", NoOp.make()), new TestCaseRunner("checkout", NoOp.make())};
+		ToLongFunction<TestCaseRunner> loginLongest = runner -> runner.getId().equals("login") ? 10000 : 1000;
+		ToLongFunction<TestCaseRunner> checkoutLongest = runner -> runner.getId().equals("checkout") ? 10000 : 1000;
+		
+		//Agents whose histories differ assign the same TestCase to different shards.
+		Set<String> first = ids(new Shard(1, 2, Sharding.DURATION).select(runners, loginLongest));
+		Set<String> second = ids(new Shard(2, 2, Sharding.DURATION).select(runners, checkoutLongest));
+		assertEquals(Collections.singleton("login"), first);
+		assertEquals(Collections.singleton("login"), second);
+		
+		assertEquals(Collections.singleton("checkout"), ids(new Shard(2, 2, Sharding.DURATION).select(runners, loginLongest)));
+	}
+	
+	@Test
+	public void durationShardDoesNotSaveHistory() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("durations.properties");
+		TestContext.setInstance(new TestContext());
+		try {
+			TestSuiteRunner runner = new TestSuiteRunner(createRunners());
+			runner.setDurationHistory(new DurationHistory(file));
+			runner.setShard(new Shard(1, SHARDS, Sharding.DURATION));
+			runner.run();
+			assertFalse(Files.exists(file));
+			
+			runner.setShard(new Shard(1, SHARDS, Sharding.HASH));
+			runner.run();
+			assertTrue(Files.exists(file));
+		} finally {
+			TestContext.removeInstance();
+		}
+	}
+	
+	@Test
+	public void singleShardSelectsAll() {
+		TestCaseRunner [] runners = createRunners();
+		assertArrayEquals(runners, new Shard(1, 1, Sharding.DURATION).select(runners, estimate));
+	}
+	
+	/**
+	 * Selects runners of every shard, returning the shard of each TestCase id and failing when one is in more shards.
+	 */
+	private Map<String, Integer> selectAll(TestCaseRunner [] runners, Sharding sharding) {
+		Map<String, Integer> shards = new HashMap<String, Integer>();
+		for (int index = 1; index <= SHARDS; index++) {
+			for (TestCaseRunner runner : new Shard(index, SHARDS, sharding).select(runners, estimate)) {
+				Integer previous = shards.put(runner.getId(), index);
+				assertEquals(runner.getId() + " is in more shards", null, previous);
+			}
+		}
+		return shards;
+	}
+	
+	private static Set<String> ids(TestCaseRunner [] runners) {
+		Set<String> ids = new LinkedHashSet<String>();
+		for (TestCaseRunner runner : runners) {
+			ids.add(runner.getId());
+		}
+		return ids;
+	}
+}
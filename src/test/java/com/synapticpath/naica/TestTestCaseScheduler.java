@@ -0,0 +1,115 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import org.junit.Test;
+
+import com.synapticpath.naica.ops.NoOp;
+
+public class TestTestCaseScheduler {
+	
+	private final Map<String, Long> estimates = new HashMap<String, Long>();
+	
+	private final ToLongFunction<TestCaseRunner> estimate = runner -> estimates.get(runner.getId());
+	
+	private TestCaseRunner runner(String id, long estimate) {
+		estimates.put(id, estimate);
+		return new TestCaseRunner(id, NoOp.make());
+	}
+	
+	@Test
+	public void readyRunnersAreHandedOutLongestFirst() throws InterruptedException {
+		
+		TestCaseScheduler scheduler = new TestCaseScheduler(estimate, 
+				runner("login", 10), runner("checkout", 50), runner("search", 30), runner("review", 30));
+		
+		//Equally long runners keep their given order.
+		assertEquals(Arrays.asList("checkout", "search", "review", "login"), takeAll(scheduler));
+	}
+	
+	@Test
+	public void runnersWithoutEstimatesKeepGivenOrder() throws InterruptedException {
+		
+		TestCaseScheduler scheduler = new TestCaseScheduler(runner("login", 10), runner("checkout", 50), runner("search", 30));
+		
+		assertEquals(Arrays.asList("login", "checkout", "search"), takeAll(scheduler));
+	}
+	
+	@Test
+	public void chainOfDependentsStartsFirst() throws InterruptedException {
+		
+		TestCaseRunner account = runner("createAccount", 10);
+		TestCaseRunner profile = runner("editProfile", 40).dependsOn("createAccount");
+		TestCaseScheduler scheduler = new TestCaseScheduler(estimate, runner("search", 30), profile, account);
+		
+		//createAccount ranks 50 with the dependent editProfile, search only 30.
+		assertEquals(account, scheduler.next());
+		assertEquals("search", scheduler.next().getId());
+		scheduler.completed(account, true);
+		assertEquals(profile, scheduler.next());
+	}
+	
+	@Test
+	public void dependentsOfFailedRunnerAreSkipped() throws InterruptedException {
+		
+		TestCaseRunner account = runner("createAccount", 10);
+		TestCaseRunner profile = runner("editProfile", 40).dependsOn("createAccount");
+		TestCaseRunner avatar = runner("uploadAvatar", 5).dependsOn("editProfile");
+		TestCaseScheduler scheduler = new TestCaseScheduler(estimate, avatar, profile, account);
+		
+		assertEquals(account, scheduler.next());
+		Map<TestCaseRunner, String> skipped = scheduler.completed(account, false);
+		
+		assertEquals(Arrays.asList(profile, avatar), new ArrayList<TestCaseRunner>(skipped.keySet()));
+		assertEquals("createAccount", skipped.get(avatar));
+		assertNull(scheduler.next());
+	}
+	
+	@Test
+	public void makespanIsEstimatedForWorkers() {
+		
+		TestCaseScheduler scheduler = new TestCaseScheduler(estimate, 
+				runner("a", 4), runner("b", 3), runner("c", 3), runner("d", 2));
+		
+		assertEquals(12, scheduler.estimateMakespan(1));
+		//Longest first: a then d on one worker, b then c on the other.
+		assertEquals(6, scheduler.estimateMakespan(2));
+		assertEquals(4, scheduler.estimateMakespan(4));
+	}
+	
+	/**
+	 * Takes runners until none is left, completing each as succeeded.
+	 */
+	private static List<String> takeAll(TestCaseScheduler scheduler) throws InterruptedException {
+		List<String> ids = new ArrayList<String>();
+		TestCaseRunner runner;
+		while ((runner = scheduler.next()) != null) {
+			ids.add(runner.getId());
+			scheduler.completed(runner, true);
+		}
+		return ids;
+	}
+}
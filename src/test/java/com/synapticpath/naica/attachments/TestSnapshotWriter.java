@@ -0,0 +1,144 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.attachments;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class TestSnapshotWriter {
+	
+	private static final byte [] DATA = "snapshot".getBytes(StandardCharsets.UTF_8);
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test(timeout = 10000)
+	public void queuedSnapshotsAreWrittenOnFlush() throws IOException {
+		
+		SnapshotWriter writer = new SnapshotWriter(4, 2);
+		for (int i = 0; i < 10; i++) {
+			writer.write(DATA, file("snap" + i + ".png"));
+		}
+		writer.writeBase64(Base64.getMimeEncoder().encodeToString(DATA), file("encoded.png"));
+		writer.flush();
+		
+		for (int i = 0; i < 10; i++) {
+			assertArrayEquals(DATA, Files.readAllBytes(file("snap" + i + ".png")));
+		}
+		assertArrayEquals(DATA, Files.readAllBytes(file("encoded.png")));
+		assertEquals(0, writer.getQueueDepth());
+		assertEquals(11, writer.getWrittenCount());
+		assertEquals(0, writer.getFailedCount());
+		assertTrue(writer.getMaxQueueDepth() <= 4);
+		assertTrue(writer.getAverageWriteLatencyMillis() > 0);
+		writer.shutdown();
+	}
+	
+	@Test(timeout = 10000)
+	public void fullQueueBlocksCallers() throws InterruptedException {
+		
+		SnapshotWriter writer = new SnapshotWriter(1, 1);
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		
+		//Keeps the only writer thread busy until released.
+		writer.write(DATA, path(file("slow.png"), () -> {
+			entered.countDown();
+			Uninterruptibles.awaitUninterruptibly(release);
+		}));
+		entered.await();
+		writer.write(DATA, file("queued.png"));
+		assertEquals(1, writer.getQueueDepth());
+		
+		Thread caller = new Thread(() -> writer.write(DATA, file("blocked.png")));
+		caller.start();
+		caller.join(300);
+		assertTrue(caller.isAlive());
+		
+		release.countDown();
+		caller.join();
+		writer.flush();
+		assertTrue(Files.exists(file("queued.png")));
+		assertTrue(Files.exists(file("blocked.png")));
+		assertEquals(1, writer.getMaxQueueDepth());
+		assertTrue(writer.getTotalBlockedMillis() >= 300);
+		writer.shutdown();
+	}
+	
+	@Test(timeout = 10000)
+	public void failedSnapshotDoesNotStopWriter() {
+		
+		SnapshotWriter writer = new SnapshotWriter(2, 1);
+		writer.write(DATA, path(file("broken.png"), () -> {
+			throw new UnsupportedOperationException("Broken file system.");
+		}));
+		writer.writeBase64("not base64 ~~", file("invalid.png"));
+		writer.write(DATA, file("valid.png"));
+		writer.flush();
+		
+		assertFalse(Files.exists(file("invalid.png")));
+		assertTrue(Files.exists(file("valid.png")));
+		assertEquals(2, writer.getFailedCount());
+		assertEquals(1, writer.getWrittenCount());
+		writer.shutdown();
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void writeAfterShutdownFails() {
+		
+		SnapshotWriter writer = new SnapshotWriter(1, 1);
+		writer.shutdown();
+		writer.write(DATA, file("late.png"));
+	}
+	
+	private Path file(String name) {
+		return folder.getRoot().toPath().resolve(name);
+	}
+	
+	/**
+	 * Returns given path that runs given code when the writer asks for its parent directory.
+	 */
+	private static Path path(Path path, Runnable onGetParent) {
+		return (Path) Proxy.newProxyInstance(Path.class.getClassLoader(), new Class<?> [] {Path.class}, (proxy, method, args) -> {
+			if (method.getName().equals("getParent")) {
+				onGetParent.run();
+			}
+			try {
+				return method.invoke(path, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		});
+	}
+}
@@ -0,0 +1,96 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.reports;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.synapticpath.naica.TestCase;
+import com.synapticpath.naica.TestContext;
+import com.synapticpath.naica.TestOutcome;
+import com.synapticpath.naica.journal.ResultsJournal;
+
+public class TestMergedReport {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void journalsOfShardsAreMerged() throws IOException {
+		
+		Path first = journal("shard1", testCase("login", TestOutcome.SUCCESS), testCase("checkout", TestOutcome.FAILURE));
+		Path second = journal("shard2", testCase("search", TestOutcome.SUCCESS), testCase("review", TestOutcome.SKIPPED), 
+				testCase("login", TestOutcome.FAILURE));
+		
+		List<TestContext> reported = new ArrayList<TestContext>();
+		TestContext context = MergedReport.generate(null, new ReportGenerator [] {reported::add}, first, second);
+		
+		assertEquals(1, reported.size());
+		assertSame(context, reported.get(0));
+		assertEquals("login, checkout, search, review", 
+				context.getTestCases().stream().map(TestCase::getId).collect(Collectors.joining(", ")));
+		assertEquals(TestOutcome.SUCCESS, context.getTestCase("login").getOutcome());
+		assertEquals(TestOutcome.FAILURE, context.getTestCase("checkout").getOutcome());
+		assertEquals(TestOutcome.SUCCESS, context.getTestCase("search").getOutcome());
+		assertEquals(TestOutcome.SKIPPED, context.getTestCase("review").getOutcome());
+		assertTrue(context.isFailed());
+	}
+	
+	@Test
+	public void mergedOutcomeSucceedsWhenAllShardsSucceed() throws IOException {
+		
+		Path first = journal("shard1", testCase("login", TestOutcome.SUCCESS));
+		Path second = journal("shard2", testCase("search", TestOutcome.SUCCESS));
+		
+		TestContext context = MergedReport.merge(null, first, second);
+		
+		assertEquals(2, context.getTestCases().size());
+		assertEquals(TestOutcome.SUCCESS, context.getOutcome());
+	}
+	
+	private Path journal(String shard, TestCase ... testCases) throws IOException {
+		ResultsJournal journal = new ResultsJournal(folder.getRoot().toPath().resolve(shard).resolve("journal.tsv"));
+		for (TestCase testCase : testCases) {
+			journal.record(testCase);
+		}
+		journal.close();
+		return journal.getFile();
+	}
+	
+	private static TestCase testCase(String id, TestOutcome outcome) {
+		TestCase testCase = new TestCase(id);
+		testCase.addAction(format("Run %s.", id));
+		if (outcome == TestOutcome.FAILURE) {
+			testCase.fail();
+		} else if (outcome == TestOutcome.SKIPPED) {
+			testCase.skip();
+		}
+		testCase.stop();
+		return testCase;
+	}
+}
@@ -0,0 +1,133 @@
+/* Copyright (C) 2017 synapticpath.com - All Rights Reserved
+
+ This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package com.synapticpath.naica.selenium;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.synapticpath.naica.selenium.memory.InMemoryWebDriver;
+
+public class TestWebDriverPool {
+	
+	private static final String HOME = "http://synapticpath.com";
+	
+	private final List<InMemoryWebDriver> started = Collections.synchronizedList(new ArrayList<InMemoryWebDriver>());
+	
+	private InMemoryWebDriver startDriver() {
+		InMemoryWebDriver driver = new InMemoryWebDriver();
+		started.add(driver);
+		return driver;
+	}
+	
+	@Test
+	public void releasedDriverIsResetAndLeasedAgain() {
+		
+		WebDriverPool pool = new WebDriverPool(this::startDriver, 1);
+		
+		InMemoryWebDriver driver = (InMemoryWebDriver) pool.lease();
+		driver.get(HOME);
+		driver.openWindow(HOME);
+		driver.manage().addCookie(new Cookie("session", "1"));
+		driver.getLocalStorage().put("user", "naica");
+		pool.release(driver);
+		
+		WebDriver again = pool.lease();
+		assertSame(driver, again);
+		assertEquals(1, driver.getWindowHandles().size());
+		assertTrue(driver.manage().getCookies().isEmpty());
+		assertTrue(driver.getLocalStorage().isEmpty());
+		assertEquals("about:blank", driver.getCurrentUrl());
+		
+		pool.release(again);
+		pool.shutdown();
+		
+		assertEquals(2, pool.getLeaseCount());
+		assertEquals(2, pool.getRecycledCount());
+		assertEquals(0, pool.getReplacedCount());
+		assertTrue(driver.isQuit());
+	}
+	
+	@Test
+	public void driverThatCannotBeResetIsReplaced() {
+		
+		WebDriverPool pool = new WebDriverPool(() -> startDriver().scriptHandler((d, script, args) -> {
+			throw new WebDriverException("Browser crashed.");
+		}), 1);
+		
+		InMemoryWebDriver driver = (InMemoryWebDriver) pool.lease();
+		pool.release(driver);
+		WebDriver replacement = pool.lease();
+		pool.shutdown();
+		
+		assertNotSame(driver, replacement);
+		assertTrue(driver.isQuit());
+		assertEquals(1, pool.getReplacedCount());
+		assertEquals(0, pool.getRecycledCount());
+	}
+	
+	@Test
+	public void leaseFailsFastWhenNoDriverCanStart() {
+		
+		WebDriverPool pool = new WebDriverPool(() -> {
+			throw new WebDriverException("Browser is not installed.");
+		}, 2);
+		
+		long start = System.currentTimeMillis();
+		try {
+			pool.lease();
+			fail("Lease has to fail when no driver can start.");
+		} catch (IllegalStateException e) {
+			assertTrue(System.currentTimeMillis() - start < TimeUnit.SECONDS.toMillis(30));
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(2, pool.getFailedStartCount());
+	}
+	
+	@Test
+	public void driverStartedDuringShutdownIsQuit() {
+		
+		CountDownLatch starting = new CountDownLatch(2);
+		WebDriverPool pool = new WebDriverPool(() -> {
+			starting.countDown();
+			//A browser start does not react on interruption.
+			Uninterruptibles.sleepUninterruptibly(300, TimeUnit.MILLISECONDS);
+			return startDriver();
+		}, 2).start();
+		Uninterruptibles.awaitUninterruptibly(starting, 5, TimeUnit.SECONDS);
+		pool.shutdown();
+		
+		Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
+		assertEquals(2, started.size());
+		started.forEach(driver -> assertTrue(driver.isQuit()));
+		assertEquals(0, pool.getIdleCount());
+	}
+}